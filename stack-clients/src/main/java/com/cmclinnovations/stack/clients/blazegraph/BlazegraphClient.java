@@ -1,30 +1,40 @@
 package com.cmclinnovations.stack.clients.blazegraph;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.io.FilenameUtils;
-import org.apache.hc.client5.http.auth.AuthScope;
-import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
-import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.util.TimeValue;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.ModifyQuery;
 import org.eclipse.rdf4j.sparqlbuilder.rdf.Rdf;
 import org.slf4j.Logger;
@@ -32,9 +42,11 @@ import org.slf4j.LoggerFactory;
 
 import com.cmclinnovations.stack.clients.core.ClientWithEndpoint;
 import com.cmclinnovations.stack.clients.core.EndpointNames;
+import com.cmclinnovations.stack.clients.core.StackClient;
 import com.cmclinnovations.stack.clients.core.datasets.CopyDatasetQuery;
 import com.cmclinnovations.stack.clients.ontop.OntopEndpointConfig;
 import com.cmclinnovations.stack.clients.utils.SparqlRulesFile;
+import com.cmclinnovations.stack.clients.utils.TempDir;
 
 import uk.ac.cam.cares.jps.base.query.RemoteStoreClient;
 
@@ -45,9 +57,87 @@ public class BlazegraphClient extends ClientWithEndpoint<BlazegraphEndpointConfi
     private static final Pattern SERVICE_IRI_PATTERN = Pattern.compile("SERVICE\\s*<ontop>",
             Pattern.CASE_INSENSITIVE);
 
+    /**
+     * Name of the environment variable that sets the maximum number of
+     * connections that are kept open to Blazegraph.
+     */
+    public static final String MAX_CONNECTIONS_KEY = "BLAZEGRAPH_MAX_CONNECTIONS";
+
+    /**
+     * Name of the environment variable that sets the maximum time, in seconds,
+     * that a connection to Blazegraph is reused for.
+     */
+    public static final String CONNECTION_TTL_KEY = "BLAZEGRAPH_CONNECTION_TTL";
+
+    /**
+     * Name of the environment variable that sets the size, in MiB, of the chunks
+     * that large RDF files are split into when they are uploaded.
+     */
+    public static final String UPLOAD_CHUNK_SIZE_KEY = "BLAZEGRAPH_UPLOAD_CHUNK_SIZE";
+
+    /**
+     * Name of the environment variable that sets the number of RDF files, or
+     * chunks of files, that are uploaded at the same time.
+     */
+    public static final String UPLOAD_CONCURRENCY_KEY = "BLAZEGRAPH_UPLOAD_CONCURRENCY";
+
+    /**
+     * Name of the environment variable that sets the number of times the upload
+     * of an RDF file, or chunk of a file, is retried.
+     */
+    public static final String UPLOAD_RETRIES_KEY = "BLAZEGRAPH_UPLOAD_RETRIES";
+
+    /**
+     * Name of the environment variable that enables the bulk-load profile for
+     * namespaces that have truth maintenance enabled.
+     */
+    public static final String BULK_LOAD_KEY = "BLAZEGRAPH_BULK_LOAD";
+
+    /**
+     * Name of the environment variable that sets the number of rules that are
+     * sent to Blazegraph in each update request.
+     */
+    public static final String RULES_BATCH_SIZE_KEY = "BLAZEGRAPH_RULES_BATCH_SIZE";
+
+    /**
+     * Name of the environment variable that sets the maximum number of times the
+     * rules are run, by default they are only run once.
+     */
+    public static final String RULES_MAX_ITERATIONS_KEY = "BLAZEGRAPH_RULES_MAX_ITERATIONS";
+
+    private static final String TRUTH_MAINTENANCE_PROPERTY = "com.bigdata.rdf.sail.truthMaintenance";
+    private static final String QUADS_PROPERTY = "com.bigdata.rdf.store.AbstractTripleStore.quads";
+    private static final String QUADS_MODE_PROPERTY = "com.bigdata.rdf.store.AbstractTripleStore.quadsMode";
+
     private static BlazegraphClient instance = null;
 
-    public static BlazegraphClient getInstance() {
+    private final int maxConnections = StackClient.getIntegerSetting(MAX_CONNECTIONS_KEY, 8);
+
+    private final int connectionTTL = StackClient.getIntegerSetting(CONNECTION_TTL_KEY, 300);
+
+    private final int uploadChunkSize = StackClient.getIntegerSetting(UPLOAD_CHUNK_SIZE_KEY, 64);
+
+    private final int uploadConcurrency = StackClient.getIntegerSetting(UPLOAD_CONCURRENCY_KEY, 2);
+
+    private final int uploadRetries = StackClient.getIntegerSetting(UPLOAD_RETRIES_KEY, 3);
+
+    private final boolean bulkLoadEnabled = StackClient.getBooleanSetting(BULK_LOAD_KEY, false);
+
+    private final int rulesBatchSize = StackClient.getIntegerSetting(RULES_BATCH_SIZE_KEY, 1);
+
+    private final int rulesMaxIterations = StackClient.getIntegerSetting(RULES_MAX_ITERATIONS_KEY, 1);
+
+    /**
+     * Long-lived HTTP clients keyed by Blazegraph service URL.
+     */
+    private final Map<String, CloseableHttpClient> httpClients = new ConcurrentHashMap<>();
+
+    /**
+     * Bulk loads that are in progress, keyed by namespace.
+     */
+    private final Map<String, StagedBulkLoad> bulkLoads = new ConcurrentHashMap<>();
+
+    public static synchronized BlazegraphClient getInstance() {
         if (null == instance) {
             instance = new BlazegraphClient();
         }
@@ -70,36 +160,117 @@ public class BlazegraphClient extends ClientWithEndpoint<BlazegraphEndpointConfi
         sendCommandToBlazegraph(namespace, new RemoveRepositoryCmd(namespace));
     }
 
+    /**
+     * @return true if the namespace has been created
+     */
+    public boolean namespaceExists(String namespace) {
+        BlazegraphEndpointConfig endpointConfig = readEndpointConfig();
+        String serviceUrl = endpointConfig.getServiceUrl();
+        ClassicRequestBuilder requestBuilder = ClassicRequestBuilder
+                .get(serviceUrl + "/namespace/" + namespace + "/properties")
+                .setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_XML.getMimeType());
+        String authorization = getAuthorization(endpointConfig);
+        if (null != authorization) {
+            requestBuilder.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        try (CloseableHttpResponse response = getHttpClient(endpointConfig).execute(requestBuilder.build())) {
+            switch (response.getCode()) {
+                case HttpStatus.SC_OK:
+                    return true;
+                case HttpStatus.SC_NOT_FOUND:
+                    return false;
+                default:
+                    throw new RuntimeException("Response code: " + response.getCode() + ". Reason: "
+                            + response.getReasonPhrase());
+            }
+        } catch (IOException | RuntimeException ex) {
+            throw new RuntimeException("Failed to check whether namespace '" + namespace
+                    + "' exists at endpoint '" + serviceUrl + "'.", ex);
+        }
+    }
+
+    /**
+     * @return the properties that the namespace was created with
+     */
+    public Properties getNamespaceProperties(String namespace) {
+        BlazegraphEndpointConfig endpointConfig = readEndpointConfig();
+        String serviceUrl = endpointConfig.getServiceUrl();
+        ClassicRequestBuilder requestBuilder = ClassicRequestBuilder
+                .get(serviceUrl + "/namespace/" + namespace + "/properties")
+                .setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_XML.getMimeType());
+        String authorization = getAuthorization(endpointConfig);
+        if (null != authorization) {
+            requestBuilder.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        try (CloseableHttpResponse response = getHttpClient(endpointConfig).execute(requestBuilder.build());
+                InputStream is = response.getEntity().getContent()) {
+            if (HttpStatus.SC_OK != response.getCode()) {
+                throw new RuntimeException("Response code: " + response.getCode() + ". Reason: "
+                        + response.getReasonPhrase());
+            }
+            Properties properties = new Properties();
+            properties.loadFromXML(is);
+            return properties;
+        } catch (IOException | RuntimeException ex) {
+            throw new RuntimeException("Failed to read the properties of namespace '" + namespace
+                    + "' at endpoint '" + serviceUrl + "'.", ex);
+        }
+    }
+
     private void sendCommandToBlazegraph(String namespace, BaseCmd command) {
         BlazegraphEndpointConfig endpointConfig = readEndpointConfig();
         String serviceUrl = endpointConfig.getServiceUrl();
 
-        try (CloseableHttpClient httpClient = HttpClientBuilder.create()
-                .setDefaultCredentialsProvider(configureAuthentication(endpointConfig))
-                .build()) {
-            callRemoteRepositoryManager(namespace, command, serviceUrl, httpClient);
+        try {
+            callRemoteRepositoryManager(namespace, command, serviceUrl, getHttpClient(endpointConfig),
+                    getAuthorization(endpointConfig));
         } catch (Exception ex) {
             throw new RuntimeException(generateMessage(namespace, command, serviceUrl), ex);
         }
     }
 
-    private BasicCredentialsProvider configureAuthentication(BlazegraphEndpointConfig endpointConfig) {
+    /**
+     * Get the shared HTTP client for the Blazegraph endpoint. The client is
+     * thread-safe and keeps a pool of connections open so that they can be reused
+     * between requests.
+     */
+    private CloseableHttpClient getHttpClient(BlazegraphEndpointConfig endpointConfig) {
+        return httpClients.computeIfAbsent(endpointConfig.getServiceUrl(), serviceUrl -> {
+            PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder
+                    .create()
+                    .setMaxConnPerRoute(maxConnections)
+                    .setMaxConnTotal(maxConnections)
+                    .setConnectionTimeToLive(TimeValue.ofSeconds(connectionTTL))
+                    .build();
+            return HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(TimeValue.ofSeconds(connectionTTL))
+                    .build();
+        });
+    }
+
+    /**
+     * @return the value of the "Authorization" header so that the credentials can
+     *         be sent preemptively, or null if no password has been set
+     */
+    private String getAuthorization(BlazegraphEndpointConfig endpointConfig) {
         if (endpointConfig.getPassword().isEmpty()) {
             return null;
         } else {
-            final HttpHost targetHost = new HttpHost("http", endpointConfig.getHostName(),
-                    Integer.valueOf(endpointConfig.getPort()));
-            final BasicCredentialsProvider provider = new BasicCredentialsProvider();
-            AuthScope authScope = new AuthScope(targetHost);
-            provider.setCredentials(authScope, new UsernamePasswordCredentials(endpointConfig.getUsername(),
-                    endpointConfig.getPassword().toCharArray()));
-            return provider;
+            return "Basic " + Base64.getEncoder().encodeToString(
+                    (endpointConfig.getUsername() + ":" + endpointConfig.getPassword())
+                            .getBytes(StandardCharsets.UTF_8));
         }
     }
 
     private void callRemoteRepositoryManager(String namespace, BaseCmd command, String serviceUrl,
-            CloseableHttpClient httpClient) throws Exception {
-        try (CloseableHttpResponse response = httpClient.execute(command.getRequest(serviceUrl))) {
+            CloseableHttpClient httpClient, String authorization) throws Exception {
+        ClassicHttpRequest request = command.getRequest(serviceUrl);
+        if (null != authorization) {
+            request.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
             switch (response.getCode()) {
                 case HttpStatus.SC_CREATED: // Namespace created successfully
                 case HttpStatus.SC_OK: // Namespace removed successfully
@@ -117,9 +288,19 @@ public class BlazegraphClient extends ClientWithEndpoint<BlazegraphEndpointConfi
         }
     }
 
+    /**
+     * Run the rules in the order they are listed. If more than one iteration is
+     * allowed, the rules that read predicates written by rules that modified the
+     * store are run again until nothing changes.
+     */
     public void runRules(RemoteStoreClient remoteStoreClient, List<Path> ruleFiles) {
+        if (rulesBatchSize < 1 || rulesMaxIterations < 1) {
+            throw new IllegalArgumentException("The values of '" + RULES_BATCH_SIZE_KEY + "' and '"
+                    + RULES_MAX_ITERATIONS_KEY + "' must be at least 1.");
+        }
+
         SparqlRulesFile sparqlRules = new SparqlRulesFile(ruleFiles);
-        sparqlRules.getRules().forEach(remoteStoreClient::executeUpdate);
+        new SparqlRuleEngine(remoteStoreClient, rulesBatchSize, rulesMaxIterations).run(sparqlRules.getRules());
     }
 
     private String generateMessage(String namespace, BaseCmd command, String serviceUrl) {
@@ -179,24 +360,276 @@ public class BlazegraphClient extends ClientWithEndpoint<BlazegraphEndpointConfi
         }
     }
 
+    /**
+     * Upload the RDF files, optionally gzip compressed, in a directory. Large
+     * N-Triples, N-Quads and Turtle files are split into chunks that are uploaded
+     * concurrently.
+     */
     public void uploadRDFFiles(Path dirPath, String namespace) {
-        RemoteStoreClient remoteStoreClient = getRemoteStoreClient(namespace);
+        checkUploadSettings();
+
+        PooledRemoteStoreClient remoteStoreClient = getPooledRemoteStoreClient(namespace);
+        List<Path> rdfFiles;
         try (Stream<Path> files = Files.list(dirPath)) {
-            files.filter(Files::isRegularFile)
+            rdfFiles = files.filter(Files::isRegularFile)
                     .filter(file -> null != remoteStoreClient
-                            .getRDFContentType(FilenameUtils.getExtension(file.toString())))
-                    .forEach(path -> remoteStoreClient.uploadFile(path.toFile()));
+                            .getRDFContentType(RDFBulkLoader.getRDFExtension(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
         } catch (IOException ex) {
             throw new RuntimeException("Failed to load RDF files stored in the directory '" + dirPath + "'.", ex);
         }
+
+        StagedBulkLoad bulkLoad = bulkLoads.get(namespace);
+        if (null != bulkLoad) {
+            bulkLoad.stage(dirPath, rdfFiles);
+            return;
+        }
+
+        new RDFBulkLoader(remoteStoreClient, uploadChunkSize * 1024L * 1024L, uploadConcurrency, uploadRetries)
+                .upload(rdfFiles);
+    }
+
+    /**
+     * Open a stream that N-Quads, or N-Triples, can be written to. The statements
+     * are uploaded in chunks while they are still being written, rather than once
+     * the whole document has been generated, and closing the stream waits for
+     * the rest of them to be uploaded.
+     * <p>
+     * If a bulk load into the namespace is in progress the statements are
+     * instead written to a file that is staged for the bulk load.
+     */
+    public OutputStream openRDFStream(String namespace, String description) {
+        checkUploadSettings();
+
+        if (bulkLoads.containsKey(namespace)) {
+            TempDir tempDir = makeLocalTempDir();
+            Path file = tempDir.getPath().resolve("statements.nq");
+            try {
+                return new FilterOutputStream(Files.newOutputStream(file)) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                            uploadRDFFiles(tempDir.getPath(), namespace);
+                        } finally {
+                            tempDir.close();
+                        }
+                    }
+                };
+            } catch (IOException ex) {
+                tempDir.close();
+                throw new RuntimeException("Failed to create file for " + description + ".", ex);
+            }
+        }
+
+        PooledRemoteStoreClient remoteStoreClient = getPooledRemoteStoreClient(namespace);
+        return new RDFBulkLoader(remoteStoreClient, uploadChunkSize * 1024L * 1024L, uploadConcurrency, uploadRetries)
+                .openStream(ContentType.parse(remoteStoreClient.getRDFContentType("nq")), description);
+    }
+
+    private void checkUploadSettings() {
+        if (uploadChunkSize < 1 || uploadConcurrency < 1 || uploadRetries < 0) {
+            throw new IllegalArgumentException("The values of '" + UPLOAD_CHUNK_SIZE_KEY + "' and '"
+                    + UPLOAD_CONCURRENCY_KEY + "' must be at least 1 and the value of '" + UPLOAD_RETRIES_KEY
+                    + "' can't be negative.");
+        }
+    }
+
+    /**
+     * Start a bulk load into a namespace. Until the returned {@link BulkLoad} is
+     * closed, files passed to {@link #uploadRDFFiles(Path, String)} for that
+     * namespace are copied into the Blazegraph container rather than uploaded.
+     * They are then all loaded by {@link BulkLoad#finish()} in a single update
+     * with incremental truth maintenance disabled, and the entailments are
+     * computed once at the end.
+     * <p>
+     * Callers that start a bulk load into a namespace that already has one in
+     * progress, e.g. datasets that are loaded concurrently into the same
+     * namespace, join it. The staged files are then loaded once the last of them
+     * has finished, or closed, its bulk load.
+     * <p>
+     * The bulk load is only started if it has been enabled, the namespace has
+     * truth maintenance enabled and the Blazegraph container is running in this
+     * stack, otherwise the files are uploaded as normal.
+     */
+    public BulkLoad beginBulkLoad(String namespace) {
+        if (!bulkLoadEnabled) {
+            return new BulkLoad(null);
+        }
+
+        Properties properties = getNamespaceProperties(namespace);
+        if (!Boolean.parseBoolean(properties.getProperty(TRUTH_MAINTENANCE_PROPERTY, "false"))
+                || Boolean.parseBoolean(properties.getProperty(QUADS_PROPERTY, "false"))
+                || Boolean.parseBoolean(properties.getProperty(QUADS_MODE_PROPERTY, "false"))) {
+            logger.info("Namespace '{}' does not use truth maintenance, RDF files will be uploaded as normal.",
+                    namespace);
+            return new BulkLoad(null);
+        }
+        if (!isContainerUp(EndpointNames.BLAZEGRAPH)) {
+            logger.warn("Blazegraph container is not running in this stack, RDF files for namespace '{}' will be"
+                    + " uploaded as normal.", namespace);
+            return new BulkLoad(null);
+        }
+
+        String containerId = getContainerId(EndpointNames.BLAZEGRAPH);
+        StagedBulkLoad stagedBulkLoad;
+        synchronized (bulkLoads) {
+            stagedBulkLoad = bulkLoads.computeIfAbsent(namespace,
+                    key -> new StagedBulkLoad(key, containerId, makeRemoteTempDir(containerId)));
+            stagedBulkLoad.holders++;
+        }
+        return new BulkLoad(stagedBulkLoad);
+    }
+
+    /**
+     * One caller's share of a bulk load into a namespace, see
+     * {@link #beginBulkLoad(String)}.
+     */
+    public final class BulkLoad implements AutoCloseable {
+
+        private final StagedBulkLoad stagedBulkLoad;
+        private boolean released = false;
+
+        private BulkLoad(StagedBulkLoad stagedBulkLoad) {
+            this.stagedBulkLoad = stagedBulkLoad;
+        }
+
+        /**
+         * Load the staged files and compute the entailments of the namespace. If
+         * other callers have joined the bulk load this waits until they have all
+         * finished, or closed, it.
+         */
+        public void finish() {
+            if (null == stagedBulkLoad || released) {
+                return;
+            }
+            released = true;
+            try {
+                stagedBulkLoad.release(true).join();
+            } catch (CompletionException ex) {
+                throw new RuntimeException("Failed to bulk load RDF files into namespace '"
+                        + stagedBulkLoad.namespace + "'.", ex.getCause());
+            }
+        }
+
+        /**
+         * Leave the bulk load without waiting for it. If this was the last caller
+         * using it the staged files are only loaded if one of the others called
+         * {@link #finish()}, otherwise they are just deleted.
+         */
+        @Override
+        public void close() {
+            if (null != stagedBulkLoad && !released) {
+                released = true;
+                stagedBulkLoad.release(false);
+            }
+        }
+    }
+
+    /**
+     * The files staged for a bulk load into a namespace and the number of callers
+     * still using it.
+     */
+    private final class StagedBulkLoad {
+
+        private final String namespace;
+        private final String containerId;
+        private final TempDir stagingDir;
+        private final AtomicInteger batchCount = new AtomicInteger();
+        private final List<Path> stagedFiles = Collections.synchronizedList(new ArrayList<>());
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        // Both guarded by the bulkLoads map
+        private int holders = 0;
+        private boolean finishRequested = false;
+
+        private StagedBulkLoad(String namespace, String containerId, TempDir stagingDir) {
+            this.namespace = namespace;
+            this.containerId = containerId;
+            this.stagingDir = stagingDir;
+        }
+
+        private void stage(Path dirPath, List<Path> files) {
+            // Each batch gets its own directory as files from different data subsets
+            // can have the same name
+            Path batchDir = stagingDir.getPath().resolve(Integer.toString(batchCount.getAndIncrement()));
+            makeDir(containerId, batchDir.toString());
+            sendFiles(containerId, dirPath.toString(),
+                    files.stream().map(file -> file.getFileName().toString()).collect(Collectors.toList()),
+                    batchDir.toString());
+            files.forEach(file -> stagedFiles.add(batchDir.resolve(file.getFileName().toString())));
+        }
+
+        /**
+         * @return the outcome of the bulk load, which is completed once the last
+         *         caller has released it
+         */
+        private CompletableFuture<Void> release(boolean finish) {
+            boolean last;
+            synchronized (bulkLoads) {
+                finishRequested |= finish;
+                last = 0 == --holders;
+                if (last) {
+                    bulkLoads.remove(namespace, this);
+                }
+            }
+
+            if (last) {
+                try {
+                    if (finishRequested) {
+                        load();
+                    }
+                    result.complete(null);
+                } catch (RuntimeException ex) {
+                    logger.error("Failed to bulk load RDF files into namespace '{}'.", namespace, ex);
+                    result.completeExceptionally(ex);
+                } finally {
+                    stagingDir.close();
+                }
+            }
+            return result;
+        }
+
+        private void load() {
+            List<Path> files;
+            synchronized (stagedFiles) {
+                files = new ArrayList<>(stagedFiles);
+                stagedFiles.clear();
+            }
+            if (files.isEmpty()) {
+                return;
+            }
+
+            StringBuilder update = new StringBuilder("DISABLE ENTAILMENTS;\n");
+            files.forEach(file -> update.append("LOAD <").append(file.toUri()).append(">;\n"));
+            update.append("CREATE ENTAILMENTS;\nENABLE ENTAILMENTS");
+
+            logger.info("Bulk loading {} RDF file(s) into namespace '{}'.", files.size(), namespace);
+            getPooledRemoteStoreClient(namespace).executeUpdate(update.toString());
+        }
     }
 
+    /**
+     * @return a store client whose updates and uploads are sent through the shared
+     *         HTTP client for the Blazegraph endpoint
+     */
     public RemoteStoreClient getRemoteStoreClient(String namespace) {
+        return getPooledRemoteStoreClient(namespace);
+    }
+
+    private PooledRemoteStoreClient getPooledRemoteStoreClient(String namespace) {
         BlazegraphEndpointConfig endpointConfig = readEndpointConfig();
         String url = endpointConfig.getUrl(namespace);
-        return new RemoteStoreClient(url, url,
+        return new PooledRemoteStoreClient(url,
                 endpointConfig.getUsername(),
-                endpointConfig.getPassword());
+                endpointConfig.getPassword(),
+                getAuthorization(endpointConfig),
+                getHttpClient(endpointConfig));
     }
 
     /**
@@ -0,0 +1,100 @@
+package com.cmclinnovations.stack.clients.blazegraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.FileEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+
+import uk.ac.cam.cares.jps.base.query.RemoteStoreClient;
+
+/**
+ * A {@link RemoteStoreClient} that sends SPARQL updates and file uploads
+ * through a shared, pooled, HTTP client so that the connections to Blazegraph
+ * are reused. Queries are still handled by the parent class.
+ */
+class PooledRemoteStoreClient extends RemoteStoreClient {
+
+    private static final ContentType SPARQL_UPDATE = ContentType.create("application/sparql-update",
+            StandardCharsets.UTF_8);
+
+    private static final Pattern MUTATION_COUNT_PATTERN = Pattern.compile("modified=\"(\\d+)\"");
+
+    private final String url;
+    private final String authorization;
+    private final CloseableHttpClient httpClient;
+
+    PooledRemoteStoreClient(String url, String username, String password, String authorization,
+            CloseableHttpClient httpClient) {
+        super(url, url, username, password);
+        this.url = url;
+        this.authorization = authorization;
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public int executeUpdate(String query) {
+        return send(ClassicRequestBuilder.post(url)
+                .setEntity(query, SPARQL_UPDATE), "run SPARQL update");
+    }
+
+    @Override
+    public void uploadFile(File file) {
+        uploadFile(file, FilenameUtils.getExtension(file.getName()));
+    }
+
+    @Override
+    public void uploadFile(File file, String extension) {
+        String contentType = getRDFContentType(extension);
+        if (null == contentType) {
+            throw new RuntimeException("Failed to upload file '" + file + "' to endpoint '" + url
+                    + "', the extension '" + extension + "' is not a recognised RDF format.");
+        }
+        upload(new FileEntity(file, ContentType.parse(contentType)), "upload file '" + file + "'");
+    }
+
+    /**
+     * Upload RDF data to the endpoint.
+     *
+     * @param entity      the RDF data, with its content type set
+     * @param description what is being uploaded, for use in error messages
+     */
+    void upload(HttpEntity entity, String description) {
+        send(ClassicRequestBuilder.post(url).setEntity(entity), description);
+    }
+
+    /**
+     * @return the number of statements that Blazegraph reported as modified
+     */
+    private int send(ClassicRequestBuilder requestBuilder, String description) {
+        if (null != authorization) {
+            // Send the credentials up front rather than waiting to be challenged
+            requestBuilder.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        ClassicHttpRequest request = requestBuilder.build();
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            String body = null == response.getEntity() ? "" : EntityUtils.toString(response.getEntity());
+            if (response.getCode() >= 300) {
+                throw new RuntimeException("Failed to " + description + " at endpoint '" + url
+                        + "'. Response code: " + response.getCode() + ". Reason: " + response.getReasonPhrase()
+                        + ". Response:\n" + body);
+            }
+            Matcher matcher = MUTATION_COUNT_PATTERN.matcher(body);
+            return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+        } catch (IOException | ParseException ex) {
+            throw new RuntimeException("Failed to " + description + " at endpoint '" + url + "'.", ex);
+        }
+    }
+}
@@ -0,0 +1,623 @@
+package com.cmclinnovations.stack.clients.blazegraph;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads RDF files to a Blazegraph namespace.
+ *
+ * Large N-Triples, N-Quads and Turtle files are split into chunks at statement
+ * boundaries, the chunks are uploaded concurrently and each one is retried on
+ * its own if it fails. Gzip compressed files are decompressed as they are
+ * read.
+ *
+ * N-Triples and N-Quads can also be written to a stream, in which case the
+ * chunks are uploaded while the rest of the statements are still being
+ * generated.
+ */
+class RDFBulkLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RDFBulkLoader.class);
+
+    private static final String GZIP_EXTENSION = "gz";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private enum Format {
+        /** One statement per line, e.g. N-Triples and N-Quads */
+        LINE,
+        /** Statements can span lines and depend on earlier prefix directives */
+        TURTLE,
+        /** Can't be split so the whole file is uploaded at once */
+        WHOLE
+    }
+
+    @FunctionalInterface
+    interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * A section of an RDF file that can be uploaded on its own.
+     */
+    static final class Part {
+        private final String description;
+        private final StreamSupplier content;
+        private final boolean retryable;
+
+        /**
+         * @param retryable false if the part might contain blank nodes, as a failed
+         *                  upload might have been partly applied and uploading it
+         *                  again would add a second copy of each blank node
+         */
+        private Part(String description, StreamSupplier content, boolean retryable) {
+            this.description = description;
+            this.content = content;
+            this.retryable = retryable;
+        }
+
+        String getDescription() {
+            return description;
+        }
+
+        boolean isRetryable() {
+            return retryable;
+        }
+
+        InputStream open() throws IOException {
+            return content.open();
+        }
+    }
+
+    private final PooledRemoteStoreClient storeClient;
+    private final long chunkSize;
+    private final int concurrency;
+    private final int maxRetries;
+
+    RDFBulkLoader(PooledRemoteStoreClient storeClient, long chunkSize, int concurrency, int maxRetries) {
+        this.storeClient = storeClient;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @return the extension that identifies the RDF format of the file, ignoring
+     *         any ".gz" suffix
+     */
+    static String getRDFExtension(Path file) {
+        String fileName = file.getFileName().toString();
+        if (GZIP_EXTENSION.equalsIgnoreCase(FilenameUtils.getExtension(fileName))) {
+            fileName = FilenameUtils.removeExtension(fileName);
+        }
+        return FilenameUtils.getExtension(fileName);
+    }
+
+    private static Format getFormat(String extension) {
+        switch (extension.toLowerCase(Locale.ROOT)) {
+            case "nt":
+            case "nq":
+                return Format.LINE;
+            case "ttl":
+                return Format.TURTLE;
+            default:
+                return Format.WHOLE;
+        }
+    }
+
+    void upload(List<Path> files) {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Limits the number of chunks that are held in memory at the same time
+        Semaphore pending = new Semaphore(2 * concurrency);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Map<String, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        try {
+            for (Path file : files) {
+                ContentType contentType = ContentType
+                        .parse(storeClient.getRDFContentType(getRDFExtension(file)));
+                try {
+                    split(file, part -> {
+                        try {
+                            pending.acquire();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new RuntimeException("Interrupted while uploading RDF file '" + file + "'.", ex);
+                        }
+                        futures.add(CompletableFuture.runAsync(() -> {
+                            try {
+                                uploadWithRetries(part, contentType);
+                            } catch (RuntimeException ex) {
+                                LOGGER.error("Failed to upload {}.", part.getDescription(), ex);
+                                failures.put(part.getDescription(), ex);
+                            } finally {
+                                pending.release();
+                            }
+                        }, executor));
+                    });
+                } catch (IOException ex) {
+                    failures.put("file '" + file + "'", ex);
+                }
+            }
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            RuntimeException exception = new RuntimeException(
+                    "Failed to upload the following RDF data: " + failures.keySet() + ".");
+            failures.values().forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    /**
+     * @return a stream that line based RDF, i.e. N-Triples or N-Quads, can be
+     *         written to. Complete chunks are uploaded as soon as they have been
+     *         written, closing the stream uploads the rest and waits for all of
+     *         the uploads to finish.
+     */
+    OutputStream openStream(ContentType contentType, String description) {
+        return new UploadStream(contentType, description);
+    }
+
+    /**
+     * Splits the statements written to it into chunks at line boundaries and
+     * uploads them concurrently. Once a blank node label has been written the
+     * rest of the statements are spooled to a temporary file, as the labels are
+     * only scoped to a single request, and that file is uploaded when the stream
+     * is closed.
+     */
+    private final class UploadStream extends OutputStream {
+
+        private final ContentType contentType;
+        private final String description;
+        private final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Limits the number of chunks that are held in memory at the same time
+        private final Semaphore pending = new Semaphore(2 * concurrency);
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private final Map<String, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        private long chunkStart = 0;
+        private long offset = 0;
+        private Path spoolFile = null;
+        private OutputStream spool = null;
+        private boolean closed = false;
+
+        private UploadStream(ContentType contentType, String description) {
+            this.contentType = contentType;
+            this.description = description;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream of " + description + " has already been closed.");
+            }
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if ('\n' == b[i]) {
+                    line.write(b, start, i + 1 - start);
+                    endLine();
+                    start = i + 1;
+                }
+            }
+            line.write(b, start, off + len - start);
+        }
+
+        private void endLine() throws IOException {
+            byte[] bytes = line.toByteArray();
+            line.reset();
+
+            if (null == spool && containsBlankNodeLabel(bytes)) {
+                if (0 == chunk.size()) {
+                    chunkStart = offset;
+                }
+                spoolFile = Files.createTempFile("rdf", ".tmp");
+                spool = new BufferedOutputStream(Files.newOutputStream(spoolFile), BUFFER_SIZE);
+                chunk.writeTo(spool);
+                chunk.reset();
+            }
+            if (null != spool) {
+                spool.write(bytes);
+                offset += bytes.length;
+                return;
+            }
+
+            if (0 == chunk.size()) {
+                chunkStart = offset;
+            }
+            chunk.write(bytes);
+            offset += bytes.length;
+            if (chunk.size() >= chunkSize) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() throws IOException {
+            byte[] statements = chunk.toByteArray();
+            chunk.reset();
+            submit(new Part("bytes " + chunkStart + "-" + offset + " of " + description,
+                    () -> new ByteArrayInputStream(statements), true));
+        }
+
+        private void submit(Part part) throws IOException {
+            try {
+                pending.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while uploading " + description + ".", ex);
+            }
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    uploadWithRetries(part, contentType);
+                } catch (RuntimeException ex) {
+                    LOGGER.error("Failed to upload {}.", part.getDescription(), ex);
+                    failures.put(part.getDescription(), ex);
+                } finally {
+                    pending.release();
+                }
+            }, executor));
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (0 != line.size()) {
+                    endLine();
+                }
+                if (0 != chunk.size()) {
+                    submitChunk();
+                }
+                if (null != spool) {
+                    spool.close();
+                    Path file = spoolFile;
+                    submit(new Part(description + " from byte " + chunkStart, () -> Files.newInputStream(file),
+                            false));
+                }
+                futures.forEach(CompletableFuture::join);
+            } finally {
+                executor.shutdownNow();
+                if (null != spoolFile) {
+                    Files.deleteIfExists(spoolFile);
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                RuntimeException exception = new RuntimeException(
+                        "Failed to upload the following RDF data: " + failures.keySet() + ".");
+                failures.values().forEach(exception::addSuppressed);
+                throw exception;
+            }
+        }
+    }
+
+    private void uploadWithRetries(Part part, ContentType contentType) {
+        for (int attempt = 0;; attempt++) {
+            try {
+                upload(part, contentType);
+                LOGGER.debug("Uploaded {}.", part.getDescription());
+                return;
+            } catch (IOException | RuntimeException ex) {
+                if (!part.isRetryable()) {
+                    throw new RuntimeException("Failed to upload " + part.getDescription()
+                            + ", it was not retried as it contains blank nodes that would be duplicated if the"
+                            + " failed attempt was partly applied.", ex);
+                }
+                if (attempt >= maxRetries) {
+                    throw new RuntimeException("Failed to upload " + part.getDescription() + " after "
+                            + (attempt + 1) + " attempt(s).", ex);
+                }
+                LOGGER.warn("Failed to upload {}, retrying ({}/{}).", part.getDescription(), attempt + 1,
+                        maxRetries, ex);
+                try {
+                    Thread.sleep(1000L << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while retrying upload of " + part.getDescription()
+                            + ".", ie);
+                }
+            }
+        }
+    }
+
+    void upload(Part part, ContentType contentType) throws IOException {
+        // Closed here as well so that the file isn't left open if the upload fails
+        // before the entity has been consumed
+        try (InputStream content = part.open()) {
+            storeClient.upload(new InputStreamEntity(content, -1, contentType), "upload " + part.getDescription());
+        }
+    }
+
+    /**
+     * Split an RDF file into parts that can be uploaded independently. Files in
+     * formats that can't be split are returned as a single part that streams the
+     * whole file.
+     */
+    void split(Path file, Consumer<Part> consumer) throws IOException {
+        Format format = getFormat(getRDFExtension(file));
+        if (Format.WHOLE == format) {
+            // The file isn't parsed here so it might contain blank nodes
+            consumer.accept(remainder(file, 0, new byte[0], "file '" + file + "'"));
+            return;
+        }
+
+        try (LineReader lines = new LineReader(open(file))) {
+            ByteArrayOutputStream directives = new ByteArrayOutputStream();
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            byte[] chunkHeader = new byte[0];
+            long chunkStart = 0;
+            long offset = 0;
+            TurtleScanner scanner = new TurtleScanner();
+            boolean chunkHasBlankNodes = false;
+
+            byte[] line;
+            while (null != (line = lines.readLine())) {
+                if (containsBlankNodeLabel(line)) {
+                    // Blank node labels are only scoped to a single request so the rest of the
+                    // file has to be uploaded in one go
+                    long start = (0 == chunk.size()) ? offset : chunkStart;
+                    byte[] header = (0 == chunk.size()) ? directives.toByteArray() : chunkHeader;
+                    consumer.accept(remainder(file, start, header, "file '" + file + "' from byte " + start));
+                    return;
+                }
+
+                if (0 == chunk.size()) {
+                    chunkStart = offset;
+                    chunkHeader = directives.toByteArray();
+                }
+                chunk.write(line);
+                offset += line.length;
+
+                boolean endOfStatement = true;
+                if (Format.TURTLE == format) {
+                    String text = new String(line, StandardCharsets.UTF_8);
+                    if (!scanner.isInLongLiteral() && isDirective(text.strip())) {
+                        directives.write(line);
+                    }
+                    endOfStatement = scanner.scanLine(text);
+                    chunkHasBlankNodes |= scanner.lineHasBlankNodes();
+                }
+
+                if (endOfStatement && chunk.size() >= chunkSize) {
+                    consumer.accept(chunk(file, chunkStart, offset, chunkHeader, chunk.toByteArray(),
+                            !chunkHasBlankNodes));
+                    chunk.reset();
+                    chunkHasBlankNodes = false;
+                }
+            }
+
+            if (0 != chunk.size()) {
+                consumer.accept(chunk(file, chunkStart, offset, chunkHeader, chunk.toByteArray(),
+                        !chunkHasBlankNodes));
+            }
+        }
+    }
+
+    private static Part chunk(Path file, long start, long end, byte[] header, byte[] statements,
+            boolean retryable) {
+        return new Part("bytes " + start + "-" + end + " of file '" + file + "'",
+                () -> new SequenceInputStream(new ByteArrayInputStream(header),
+                        new ByteArrayInputStream(statements)),
+                retryable);
+    }
+
+    /**
+     * @return a part that streams the file from the start offset, it is only used
+     *         for data that might contain blank nodes so it isn't retried
+     */
+    private static Part remainder(Path file, long start, byte[] header, String description) {
+        return new Part(description, () -> {
+            InputStream is = open(file);
+            IOUtils.skipFully(is, start);
+            return new SequenceInputStream(new ByteArrayInputStream(header), is);
+        }, false);
+    }
+
+    /**
+     * Tracks where Turtle statements end, one line at a time, ignoring anything in
+     * IRIs, string literals and comments.
+     */
+    static final class TurtleScanner {
+        /** The quotes that close the long literal that the next line starts in */
+        private String longLiteralQuotes = null;
+        private boolean lineHasBlankNodes = false;
+
+        boolean isInLongLiteral() {
+            return null != longLiteralQuotes;
+        }
+
+        /**
+         * @return true if the line was the end of a statement, i.e. its last
+         *         character outside of literals and comments is a "."
+         */
+        boolean scanLine(String line) {
+            lineHasBlankNodes = false;
+            char last = 0;
+            int index = 0;
+            while (index < line.length()) {
+                if (null != longLiteralQuotes) {
+                    index = skipString(line, index, longLiteralQuotes);
+                    if (index < 0) {
+                        return false;
+                    }
+                    longLiteralQuotes = null;
+                    last = '"';
+                    continue;
+                }
+                char c = line.charAt(index);
+                if ('#' == c) {
+                    break;
+                } else if ('<' == c) {
+                    int end = line.indexOf('>', index + 1);
+                    index = end < 0 ? line.length() : end + 1;
+                    last = '>';
+                } else if ('"' == c || '\'' == c) {
+                    String quotes = String.valueOf(c).repeat(3);
+                    if (line.startsWith(quotes, index)) {
+                        longLiteralQuotes = quotes;
+                        index += quotes.length();
+                    } else {
+                        index = skipString(line, index + 1, String.valueOf(c));
+                        index = index < 0 ? line.length() : index;
+                        last = c;
+                    }
+                } else {
+                    // Anonymous blank nodes and collections both create blank nodes
+                    if ('[' == c || '(' == c) {
+                        lineHasBlankNodes = true;
+                    }
+                    if (!Character.isWhitespace(c)) {
+                        last = c;
+                    }
+                    index++;
+                }
+            }
+            return null == longLiteralQuotes && '.' == last;
+        }
+
+        /**
+         * @return true if the last line scanned contained an anonymous blank node or
+         *         a collection
+         */
+        boolean lineHasBlankNodes() {
+            return lineHasBlankNodes;
+        }
+
+        /**
+         * @return the index after the closing quotes, or -1 if the string continues
+         *         past the end of the line
+         */
+        private static int skipString(String line, int index, String quotes) {
+            while (index < line.length()) {
+                if ('\\' == line.charAt(index)) {
+                    index += 2;
+                } else if (line.startsWith(quotes, index)) {
+                    return index + quotes.length();
+                } else {
+                    index++;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream is = Files.newInputStream(file);
+        if (GZIP_EXTENSION.equalsIgnoreCase(FilenameUtils.getExtension(file.toString()))) {
+            return new GZIPInputStream(is, BUFFER_SIZE);
+        }
+        return is;
+    }
+
+    /**
+     * Reads lines from a stream through a large buffer, copying each line out of
+     * the buffer in as few pieces as possible.
+     */
+    private static final class LineReader implements AutoCloseable {
+        private final InputStream is;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+
+        private LineReader(InputStream is) {
+            this.is = is;
+        }
+
+        /**
+         * @return the next line, including the line terminator, or null at the end
+         *         of the stream
+         */
+        private byte[] readLine() throws IOException {
+            ByteArrayOutputStream line = null;
+            while (true) {
+                if (position == limit) {
+                    limit = is.read(buffer);
+                    position = 0;
+                    if (-1 == limit) {
+                        limit = 0;
+                        return null == line ? null : line.toByteArray();
+                    }
+                }
+                int start = position;
+                while (position < limit && '\n' != buffer[position]) {
+                    position++;
+                }
+                if (position < limit) {
+                    // Include the line terminator
+                    position++;
+                    if (null == line) {
+                        return Arrays.copyOfRange(buffer, start, position);
+                    }
+                    line.write(buffer, start, position - start);
+                    return line.toByteArray();
+                }
+                // The line continues past the end of the buffer
+                if (null == line) {
+                    line = new ByteArrayOutputStream(2 * (limit - start));
+                }
+                line.write(buffer, start, limit - start);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            is.close();
+        }
+    }
+
+    private static boolean containsBlankNodeLabel(byte[] line) {
+        for (int i = 0; i < line.length - 1; i++) {
+            if ('_' == line[i] && ':' == line[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDirective(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        return lowerCase.startsWith("@prefix") || lowerCase.startsWith("@base")
+                || lowerCase.startsWith("prefix ") || lowerCase.startsWith("base ");
+    }
+}
@@ -0,0 +1,212 @@
+package com.cmclinnovations.stack.clients.blazegraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.DeleteData;
+import org.eclipse.rdf4j.query.algebra.InsertData;
+import org.eclipse.rdf4j.query.algebra.Modify;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UpdateExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.parser.ParsedUpdate;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.cam.cares.jps.base.query.RemoteStoreClient;
+
+/**
+ * Runs SPARQL update rules against a triple store.
+ *
+ * The rules are sent in batches of several operations per request. After the
+ * first pass only the rules that read a predicate written by a rule that
+ * modified the store are run again, until no rule modifies the store or the
+ * maximum number of iterations is reached.
+ */
+class SparqlRuleEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SparqlRuleEngine.class);
+
+    /**
+     * A rule along with the predicates that it reads and writes.
+     */
+    static final class Rule {
+        private final int number;
+        private final String update;
+        private final Set<Value> reads = new HashSet<>();
+        private final Set<Value> writes = new HashSet<>();
+        /** Set when the rule reads triples whose predicate isn't known */
+        private boolean readsAny = false;
+        /** Set when the rule writes triples whose predicate isn't known */
+        private boolean writesAny = false;
+
+        private Rule(int number, String update) {
+            this.number = number;
+            this.update = update;
+        }
+
+        int getNumber() {
+            return number;
+        }
+
+        Set<Value> getReads() {
+            return reads;
+        }
+
+        Set<Value> getWrites() {
+            return writes;
+        }
+
+        boolean readsAny() {
+            return readsAny;
+        }
+
+        boolean writesAny() {
+            return writesAny;
+        }
+
+        /**
+         * @return whether running the rule again could have a different effect
+         *         after triples with the given predicates have been modified
+         */
+        boolean isAffectedBy(Set<Value> modifiedPredicates, boolean anyModified) {
+            if ((!anyModified && modifiedPredicates.isEmpty()) || (!readsAny && reads.isEmpty())) {
+                return false;
+            }
+            return readsAny || anyModified || !Collections.disjoint(reads, modifiedPredicates);
+        }
+    }
+
+    private final RemoteStoreClient storeClient;
+    private final int batchSize;
+    private final int maxIterations;
+
+    SparqlRuleEngine(RemoteStoreClient storeClient, int batchSize, int maxIterations) {
+        this.storeClient = storeClient;
+        this.batchSize = batchSize;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Work out which predicates a rule reads and writes. If the rule can't be
+     * parsed it is assumed to read and write everything.
+     *
+     * @param number the position of the rule, used to identify it in log messages
+     */
+    static Rule parse(int number, String update) {
+        Rule rule = new Rule(number, update.strip().replaceAll(";$", ""));
+        try {
+            ParsedUpdate parsedUpdate = new SPARQLParser().parseUpdate(update, null);
+            for (UpdateExpr updateExpr : parsedUpdate.getUpdateExprs()) {
+                if (updateExpr instanceof Modify) {
+                    Modify modify = (Modify) updateExpr;
+                    rule.writesAny |= collectPredicates(modify.getDeleteExpr(), rule.writes);
+                    rule.writesAny |= collectPredicates(modify.getInsertExpr(), rule.writes);
+                    rule.readsAny |= collectPredicates(modify.getWhereExpr(), rule.reads);
+                } else if (updateExpr instanceof InsertData || updateExpr instanceof DeleteData) {
+                    // Fixed data doesn't depend on anything else in the store
+                    rule.writesAny = true;
+                } else {
+                    // LOAD, CLEAR, COPY etc.
+                    rule.readsAny = true;
+                    rule.writesAny = true;
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to parse rule {}, it will be run whenever any other rule modifies the store.",
+                    number, ex);
+            rule.readsAny = true;
+            rule.writesAny = true;
+        }
+        return rule;
+    }
+
+    /**
+     * @return true if any of the patterns has a variable predicate
+     */
+    private static boolean collectPredicates(TupleExpr tupleExpr, Set<Value> predicates) {
+        if (null == tupleExpr) {
+            return false;
+        }
+        boolean[] variablePredicate = { false };
+        tupleExpr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(StatementPattern node) {
+                Var predicate = node.getPredicateVar();
+                if (predicate.hasValue()) {
+                    predicates.add(predicate.getValue());
+                } else {
+                    variablePredicate[0] = true;
+                }
+            }
+        });
+        return variablePredicate[0];
+    }
+
+    void run(List<String> updates) {
+        List<Rule> rules = new ArrayList<>(updates.size());
+        for (int index = 0; index < updates.size(); index++) {
+            rules.add(parse(index + 1, updates.get(index)));
+        }
+
+        long totalStart = System.nanoTime();
+        int requests = 0;
+        int executions = 0;
+        long totalModified = 0;
+        int iteration = 0;
+        List<Rule> pending = rules;
+        while (!pending.isEmpty()) {
+            iteration++;
+            Set<Value> modifiedPredicates = new HashSet<>();
+            boolean anyModified = false;
+
+            for (int start = 0; start < pending.size(); start += batchSize) {
+                List<Rule> batch = pending.subList(start, Math.min(start + batchSize, pending.size()));
+                List<Integer> numbers = batch.stream().map(Rule::getNumber).collect(Collectors.toList());
+
+                long batchStart = System.nanoTime();
+                int modified = storeClient.executeUpdate(batch.stream()
+                        .map(rule -> rule.update)
+                        .collect(Collectors.joining(";\n")));
+                LOGGER.info("Iteration {}: rule(s) {} modified {} statement(s) in {} ms.", iteration, numbers,
+                        modified, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart));
+
+                requests++;
+                executions += batch.size();
+                totalModified += modified;
+                if (modified > 0) {
+                    for (Rule rule : batch) {
+                        modifiedPredicates.addAll(rule.writes);
+                        anyModified |= rule.writesAny;
+                    }
+                }
+            }
+
+            boolean finalAnyModified = anyModified;
+            pending = rules.stream()
+                    .filter(rule -> rule.isAffectedBy(modifiedPredicates, finalAnyModified))
+                    .collect(Collectors.toList());
+            if (!pending.isEmpty() && iteration >= maxIterations) {
+                if (maxIterations > 1) {
+                    LOGGER.warn("Stopped running rules after {} iteration(s), rule(s) {} could still modify the store.",
+                            iteration, pending.stream().map(Rule::getNumber).collect(Collectors.toList()));
+                }
+                break;
+            }
+        }
+
+        LOGGER.info("Ran {} rule(s) {} time(s) in total, in {} request(s) over {} iteration(s),"
+                + " modifying {} statement(s) in {} ms.", rules.size(), executions, requests,
+                iteration, totalModified,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - totalStart));
+    }
+}
@@ -28,7 +28,7 @@ public class CityDBClient extends ContainerClient {
 
     private static CityDBClient instance = null;
 
-    public static CityDBClient getInstance() {
+    public static synchronized CityDBClient getInstance() {
         if (null == instance) {
             instance = new CityDBClient();
         }
@@ -152,7 +152,7 @@ public class CityDBClient extends ContainerClient {
         String sqlFilename = "citydb_add_uuids_and_iris.sql";
         try (InputStream is = CityDBClient.class.getResourceAsStream(sqlFilename)) {
             String sqlQuery = new String(is.readAllBytes()).replace("{baseIRI}", baseIRI);
-            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(sqlQuery);
+            PostGISClient.getInstance().getPooledRemoteStoreClient(database).executeUpdate(sqlQuery);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
         }
@@ -233,7 +233,7 @@ public class CityDBClient extends ContainerClient {
             for (Map.Entry<String, String> entry : columnMap.entrySet()) {
                 sqlQuery = sqlQuery.replace("{" + entry.getKey() + "}", entry.getValue());
             }
-            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(sqlQuery);
+            PostGISClient.getInstance().getPooledRemoteStoreClient(database).executeUpdate(sqlQuery);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
         }
@@ -241,7 +241,10 @@ public class CityDBClient extends ContainerClient {
 
     public void preparePGforCityDB(String database, String table, String preprocessSql, double minArea,
             Map<String, String> columnMap) {
-        if (null == preprocessSql) {
+        if (null != preprocessSql) {
+            // User-supplied SQL gets its own connection, rather than a pooled one
+            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(preprocessSql);
+        } else {
             String sqlFilename = "citydb_preprocess_building.sql";
             try (InputStream is = CityDBClient.class.getResourceAsStream(sqlFilename)) {
                 preprocessSql = new String(is.readAllBytes()).replace("{table}", String.valueOf(table))
@@ -252,14 +255,14 @@ public class CityDBClient extends ContainerClient {
             } catch (IOException ex) {
                 throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
             }
+            PostGISClient.getInstance().getPooledRemoteStoreClient(database).executeUpdate(preprocessSql);
         }
-        PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(preprocessSql);
     }
 
     private void applySQLFile(String database, String sqlFilename) {
         try (InputStream is = CityDBClient.class.getResourceAsStream(sqlFilename)) {
             String sqlQuery = new String(is.readAllBytes());
-            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(sqlQuery);
+            PostGISClient.getInstance().getPooledRemoteStoreClient(database).executeUpdate(sqlQuery);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
         }
@@ -268,7 +271,8 @@ public class CityDBClient extends ContainerClient {
     private long[] applySQLFileReturnID(String database, String sqlFilename) {
         try (InputStream is = CityDBClient.class.getResourceAsStream(sqlFilename)) {
             String sqlQuery = new String(is.readAllBytes());
-            JSONArray result = PostGISClient.getInstance().getRemoteStoreClient(database).executeQuery(sqlQuery);
+            JSONArray result = PostGISClient.getInstance().getPooledRemoteStoreClient(database)
+                    .executeQuery(sqlQuery);
             return IntStream.range(0, result.length()).mapToLong(i -> result.getJSONObject(i).getLong("id")).toArray();
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
@@ -282,7 +286,7 @@ public class CityDBClient extends ContainerClient {
                     .mapToObj(Long::toString)
                     .collect(Collectors.joining("','"));
             sqlQuery = sqlQuery.replaceFirst("\\{idList\\}", idList);
-            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(sqlQuery);
+            PostGISClient.getInstance().getPooledRemoteStoreClient(database).executeUpdate(sqlQuery);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
         }
@@ -296,7 +300,7 @@ public class CityDBClient extends ContainerClient {
         String sqlFilename = "citydb_thematic_surface_discovery.sql";
         try (InputStream is = CityDBClient.class.getResourceAsStream(sqlFilename)) {
             String sqlQuery = new String(is.readAllBytes()).replace("{critAreaRatio}", String.valueOf(critAreaRatio));
-            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(sqlQuery);
+            PostGISClient.getInstance().getPooledRemoteStoreClient(database).executeUpdate(sqlQuery);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file '" + sqlFilename + "'.", ex);
         }
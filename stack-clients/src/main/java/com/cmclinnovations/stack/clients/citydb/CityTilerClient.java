@@ -34,7 +34,7 @@ public class CityTilerClient extends ContainerClient {
 
     private static CityTilerClient instance = null;
 
-    public static CityTilerClient getInstance() {
+    public static synchronized CityTilerClient getInstance() {
         if (null == instance) {
             instance = new CityTilerClient();
         }
@@ -99,6 +99,41 @@ public final class StackClient {
         return System.getenv().getOrDefault(EXECUTABLE_KEY, "docker");
     }
 
+    /**
+     * Read an integer valued setting from the environment.
+     *
+     * @param key          name of the environment variable
+     * @param defaultValue value to use if the environment variable is not set
+     * @return the value of the setting
+     */
+    public static int getIntegerSetting(String key, int defaultValue) {
+        String value = System.getenv(key);
+        if (null == value || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "Environment variable '" + key + "' must be an integer, '" + value + "' provided.", ex);
+        }
+    }
+
+    /**
+     * Read a boolean valued setting from the environment.
+     *
+     * @param key          name of the environment variable
+     * @param defaultValue value to use if the environment variable is not set
+     * @return the value of the setting
+     */
+    public static boolean getBooleanSetting(String key, boolean defaultValue) {
+        String value = System.getenv(key);
+        if (null == value || value.isBlank()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.strip());
+    }
+
     private static Path getStackBaseDir() {
         return Path.of(System.getenv(STACK_BASE_DIR_KEY));
     }
@@ -60,6 +60,11 @@ public class CityDB extends GeoServerDataSubset {
         previousFile = previousFilePath;
     }
 
+    @Override
+    public boolean usesCityDB() {
+        return !isSkip();
+    }
+
     @Override
     void loadInternal(Dataset parent) {
         String database = parent.getDatabase();
@@ -1,6 +1,7 @@
 package com.cmclinnovations.stack.clients.core.datasets;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 import java.util.UUID;
 
 import org.eclipse.rdf4j.model.IRI;
@@ -131,9 +132,9 @@ final class DCATUpdateQuery {
 
     private int dataSubsetCount = 0;
 
-    private void addDataSubset(DataSubset dataSubset) {
+    private void addDataSubset(DataSubset dataSubset, boolean unchanged) {
         Variable dataSubsetVar = SparqlBuilder.var("dataSubset" + dataSubsetCount++);
-        if (!dataSubset.isSkip()) {
+        if (!dataSubset.isSkip() && !unchanged) {
             Variable issuedVar = createVar(dataSubsetVar, "issued");
 
             // If there is already a description then remove it
@@ -169,7 +170,8 @@ final class DCATUpdateQuery {
 
             query.where(Expressions.bind(Expressions.coalesce(existingDataSubsetVar, createIRI()), dataSubsetVar));
         } else {
-            // If skipped just re-add the link from the dataset.
+            // If skipped, or unchanged since it was last loaded, just re-add the link from
+            // the dataset so that the existing "modified" times are kept.
             Variable existingDataSubsetVar = createVar(dataSubsetVar, EXISTING);
             query.insert(datasetVar.has(DCAT.HAS_DATASET, existingDataSubsetVar));
             // Try to find the DataSubset but bind a new IRI if not found
@@ -341,6 +343,10 @@ final class DCATUpdateQuery {
     }
 
     public String getUpdateQuery(Dataset dataset) {
+        return getUpdateQuery(dataset, Set.of());
+    }
+
+    public String getUpdateQuery(Dataset dataset, Set<DataSubset> unchangedDataSubsets) {
 
         addDataset(dataset);
 
@@ -349,7 +355,7 @@ final class DCATUpdateQuery {
 
         removeExistingDataSubsetLinks();
         dataset.getDataSubsets().stream()
-                .forEach(this::addDataSubset);
+                .forEach(dataSubset -> addDataSubset(dataSubset, unchangedDataSubsets.contains(dataSubset)));
 
         removeExistingServiceLinks();
 
@@ -3,6 +3,7 @@ package com.cmclinnovations.stack.clients.core.datasets;
 import java.nio.file.Path;
 import java.util.Optional;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonSubTypes.Type;
@@ -23,6 +24,8 @@ public abstract class DataSubset extends AbstractDataObject {
     protected final Optional<String> name = Optional.empty();
     @JsonProperty
     private final Optional<Path> subdirectory = Optional.empty();
+    @JsonIgnore
+    private String config;
 
     public String getName() {
         return name.orElse(getSubdirectory().map(subdir -> subdir.getFileName().toString())
@@ -33,6 +36,18 @@ public abstract class DataSubset extends AbstractDataObject {
         return subdirectory;
     }
 
+    /**
+     * @return the JSON that this data subset was read from, or null if it was not
+     *         read from a config file
+     */
+    String getConfig() {
+        return config;
+    }
+
+    void setConfig(String config) {
+        this.config = config;
+    }
+
     public boolean usesPostGIS() {
         return false;
     }
@@ -45,6 +60,10 @@ public abstract class DataSubset extends AbstractDataObject {
         return false;
     }
 
+    public boolean usesCityDB() {
+        return false;
+    }
+
     public void load(Dataset dataset) {
         if (!isSkip()) {
             loadInternal(dataset);
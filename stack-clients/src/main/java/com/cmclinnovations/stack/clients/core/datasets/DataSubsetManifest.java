@@ -0,0 +1,267 @@
+package com.cmclinnovations.stack.clients.core.datasets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cmclinnovations.stack.clients.blazegraph.BlazegraphClient;
+import com.cmclinnovations.stack.clients.postgis.PostGISClient;
+import com.cmclinnovations.stack.clients.utils.JsonHelper;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Records a fingerprint of the config and input files of each data subset that
+ * has been loaded so that unchanged data subsets can be skipped on subsequent
+ * runs.
+ *
+ * The content hash of a file is only recalculated when its size or
+ * modification time has changed. A data subset is only skipped if the
+ * namespace or database that it was loaded into still exists.
+ */
+class DataSubsetManifest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSubsetManifest.class);
+
+    private static final ObjectMapper objectMapper = JsonHelper.getMapper();
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    static final class FileFingerprint {
+        @JsonProperty
+        private long size;
+        @JsonProperty
+        private long lastModified;
+        @JsonProperty
+        private String hash;
+
+        FileFingerprint() {
+        }
+
+        private FileFingerprint(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        private boolean hasSameAttributes(FileFingerprint other) {
+            return null != other && size == other.size && lastModified == other.lastModified;
+        }
+    }
+
+    static final class Entry {
+        @JsonProperty
+        private String configHash;
+        @JsonProperty
+        private Map<String, FileFingerprint> files = new TreeMap<>();
+
+        Entry() {
+        }
+
+        private Entry(String configHash, Map<String, FileFingerprint> files) {
+            this.configHash = configHash;
+            this.files = files;
+        }
+    }
+
+    private final Path manifestFile;
+
+    private final Map<String, Entry> entries;
+
+    private final BiPredicate<Dataset, DataSubset> targetExists;
+
+    private DataSubsetManifest(Path manifestFile, Map<String, Entry> entries,
+            BiPredicate<Dataset, DataSubset> targetExists) {
+        this.manifestFile = manifestFile;
+        this.entries = entries;
+        this.targetExists = targetExists;
+    }
+
+    static DataSubsetManifest load(Path manifestFile) {
+        return load(manifestFile, DataSubsetManifest::targetExists);
+    }
+
+    /**
+     * @param targetExists checks whether the places that a data subset loads data
+     *                     into still exist
+     */
+    static DataSubsetManifest load(Path manifestFile, BiPredicate<Dataset, DataSubset> targetExists) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (Files.exists(manifestFile)) {
+            try {
+                entries = objectMapper.readValue(manifestFile.toFile(), new TypeReference<HashMap<String, Entry>>() {
+                });
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to read data subset manifest '{}', all data subsets will be reloaded.",
+                        manifestFile, ex);
+            }
+        }
+        return new DataSubsetManifest(manifestFile, entries, targetExists);
+    }
+
+    /**
+     * Check whether the config and input files of a data subset are the same as
+     * when it was last successfully loaded.
+     */
+    boolean isUnchanged(Dataset dataset, DataSubset dataSubset) {
+        Entry previous;
+        synchronized (this) {
+            previous = entries.get(getKey(dataset, dataSubset));
+        }
+        if (null == previous || !getConfigHash(dataset, dataSubset).equals(previous.configHash)) {
+            return false;
+        }
+
+        Map<String, FileFingerprint> current = getFileFingerprints(dataset, dataSubset, previous.files);
+        return current.keySet().equals(previous.files.keySet()) && current.entrySet().stream()
+                .allMatch(entry -> entry.getValue().hash.equals(previous.files.get(entry.getKey()).hash))
+                // The data could have been removed since, e.g. along with another dataset
+                // that loaded into the same namespace or database
+                && targetExists.test(dataset, dataSubset);
+    }
+
+    private static boolean targetExists(Dataset dataset, DataSubset dataSubset) {
+        return (!dataSubset.usesBlazegraph()
+                || BlazegraphClient.getInstance().namespaceExists(dataset.getNamespace()))
+                && (!dataSubset.usesPostGIS()
+                        || PostGISClient.getInstance().databaseExists(dataset.getDatabase()));
+    }
+
+    /**
+     * Record the current state of a data subset after it has been successfully
+     * loaded and save the manifest.
+     */
+    void update(Dataset dataset, DataSubset dataSubset) {
+        String key = getKey(dataset, dataSubset);
+        Map<String, FileFingerprint> previousFiles;
+        synchronized (this) {
+            Entry previous = entries.get(key);
+            previousFiles = null == previous ? Map.of() : previous.files;
+        }
+
+        Entry entry = new Entry(getConfigHash(dataset, dataSubset),
+                getFileFingerprints(dataset, dataSubset, previousFiles));
+
+        synchronized (this) {
+            entries.put(key, entry);
+            save();
+        }
+    }
+
+    /**
+     * Forget all of the data subsets of a dataset, e.g. when it has been removed,
+     * and save the manifest.
+     */
+    synchronized void remove(Dataset dataset) {
+        if (entries.keySet().removeIf(key -> key.startsWith(dataset.getName() + "/"))) {
+            save();
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(manifestFile.getParent());
+            Path tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), new TreeMap<>(entries));
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to write data subset manifest '" + manifestFile + "'.", ex);
+        }
+    }
+
+    private static String getKey(Dataset dataset, DataSubset dataSubset) {
+        return dataset.getName() + "/" + dataSubset.getName();
+    }
+
+    private static String getConfigHash(Dataset dataset, DataSubset dataSubset) {
+        // The data subset can also be affected by where its parent dataset loads data
+        String config = String.join("\n", dataset.getDatabase(), dataset.getNamespace(),
+                dataset.getWorkspaceName(), dataset.baseIRI(), Objects.toString(dataSubset.getConfig(), ""));
+        return toHex(createDigest().digest(config.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Map<String, FileFingerprint> getFileFingerprints(Dataset dataset, DataSubset dataSubset,
+            Map<String, FileFingerprint> previousFiles) {
+        if (dataSubset.getSubdirectory().isEmpty()) {
+            return new TreeMap<>();
+        }
+
+        Path datasetDirectory = dataset.getDirectory();
+        Path dataSubsetDirectory = datasetDirectory.resolve(dataSubset.getSubdirectory().get());
+        if (!Files.exists(dataSubsetDirectory)) {
+            return new TreeMap<>();
+        }
+
+        try (Stream<Path> files = Files.walk(dataSubsetDirectory)) {
+            return files.filter(Files::isRegularFile)
+                    .collect(Collectors.toMap(
+                            file -> datasetDirectory.relativize(file).toString(),
+                            file -> getFileFingerprint(file,
+                                    previousFiles.get(datasetDirectory.relativize(file).toString())),
+                            (a, b) -> a,
+                            TreeMap::new));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to list the files in '" + dataSubsetDirectory + "'.", ex);
+        }
+    }
+
+    private static FileFingerprint getFileFingerprint(Path file, FileFingerprint previous) {
+        try {
+            long size = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            FileFingerprint current = new FileFingerprint(size, lastModified, null);
+            if (current.hasSameAttributes(previous)) {
+                current.hash = previous.hash;
+            } else {
+                current.hash = hashFile(file);
+            }
+            return current;
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read the attributes of file '" + file + "'.", ex);
+        }
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = createDigest();
+        try (InputStream is = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("The '" + HASH_ALGORITHM + "' hashing algorithm is not available.", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
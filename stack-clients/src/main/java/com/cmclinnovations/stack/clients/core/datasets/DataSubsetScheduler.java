@@ -0,0 +1,192 @@
+package com.cmclinnovations.stack.clients.core.datasets;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cmclinnovations.stack.clients.core.StackClient;
+
+/**
+ * Loads the data subsets of a dataset concurrently, limiting the number of
+ * subsets that can use each backend at the same time.
+ */
+class DataSubsetScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSubsetScheduler.class);
+
+    /**
+     * Name of the environment variable that sets the maximum number of data
+     * subsets, within a single dataset, that are loaded concurrently.
+     */
+    static final String DATA_SUBSET_LOAD_CONCURRENCY_KEY = "DATA_SUBSET_LOAD_CONCURRENCY";
+
+    /**
+     * The backends that a data subset can load data into. The permits for each
+     * backend are always acquired in declaration order to avoid deadlocks.
+     */
+    enum Backend {
+        CITYDB("CITYDB_LOAD_CONCURRENCY", 1),
+        POSTGIS("POSTGIS_LOAD_CONCURRENCY", 2),
+        BLAZEGRAPH("BLAZEGRAPH_LOAD_CONCURRENCY", 2),
+        GEOSERVER("GEOSERVER_LOAD_CONCURRENCY", 2);
+
+        private final String concurrencyKey;
+        private final int defaultConcurrency;
+
+        private Backend(String concurrencyKey, int defaultConcurrency) {
+            this.concurrencyKey = concurrencyKey;
+            this.defaultConcurrency = defaultConcurrency;
+        }
+
+        String getConcurrencyKey() {
+            return concurrencyKey;
+        }
+
+        int getDefaultConcurrency() {
+            return defaultConcurrency;
+        }
+
+        static Set<Backend> of(DataSubset dataSubset) {
+            Set<Backend> backends = EnumSet.noneOf(Backend.class);
+            if (dataSubset.usesCityDB()) {
+                backends.add(CITYDB);
+            }
+            if (dataSubset.usesPostGIS()) {
+                backends.add(POSTGIS);
+            }
+            if (dataSubset.usesBlazegraph()) {
+                backends.add(BLAZEGRAPH);
+            }
+            if (dataSubset.usesGeoServer()) {
+                backends.add(GEOSERVER);
+            }
+            return backends;
+        }
+    }
+
+    private final int maxConcurrency;
+
+    private final Map<Backend, Semaphore> backendLimits = new EnumMap<>(Backend.class);
+
+    DataSubsetScheduler() {
+        this(StackClient.getIntegerSetting(DATA_SUBSET_LOAD_CONCURRENCY_KEY, 1), readBackendLimits());
+    }
+
+    DataSubsetScheduler(int maxConcurrency, Map<Backend, Integer> backendLimits) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of concurrently loaded data subsets must be at least 1, '" + maxConcurrency
+                            + "' provided.");
+        }
+        this.maxConcurrency = maxConcurrency;
+
+        for (Backend backend : Backend.values()) {
+            int limit = backendLimits.getOrDefault(backend, backend.getDefaultConcurrency());
+            if (limit < 1) {
+                throw new IllegalArgumentException("The value of '" + backend.getConcurrencyKey()
+                        + "' must be at least 1, '" + limit + "' provided.");
+            }
+            // Fair so that a subset that needs several backends isn't starved
+            this.backendLimits.put(backend, new Semaphore(limit, true));
+        }
+    }
+
+    private static Map<Backend, Integer> readBackendLimits() {
+        Map<Backend, Integer> limits = new EnumMap<>(Backend.class);
+        for (Backend backend : Backend.values()) {
+            limits.put(backend,
+                    StackClient.getIntegerSetting(backend.getConcurrencyKey(), backend.getDefaultConcurrency()));
+        }
+        return limits;
+    }
+
+    /**
+     * Load all of the data subsets in the dataset.
+     *
+     * If concurrent loading is disabled then the subsets are loaded in the order
+     * they are listed, stopping at the first failure. Otherwise every subset is
+     * attempted and an exception summarising the failures is thrown once they
+     * have all finished. In both cases the backend limits are shared with any
+     * other datasets that are being loaded at the same time.
+     *
+     * @param dataset the dataset that the data subsets belong to
+     * @param loader  method that loads a single data subset
+     */
+    void load(Dataset dataset, Consumer<DataSubset> loader) {
+        List<DataSubset> dataSubsets = dataset.getDataSubsets();
+
+        if (maxConcurrency == 1 || dataSubsets.size() < 2) {
+            dataSubsets.forEach(subset -> load(dataset, subset, loader));
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, dataSubsets.size()));
+        try {
+            Map<DataSubset, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+            dataSubsets.forEach(subset -> futures.put(subset,
+                    CompletableFuture.runAsync(() -> load(dataset, subset, loader), executor)));
+
+            reportFailures(dataset, futures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void load(Dataset dataset, DataSubset dataSubset, Consumer<DataSubset> loader) {
+        List<Semaphore> acquired = new ArrayList<>();
+        try {
+            for (Backend backend : Backend.of(dataSubset)) {
+                Semaphore semaphore = backendLimits.get(backend);
+                semaphore.acquire();
+                acquired.add(semaphore);
+            }
+
+            LOGGER.info("Loading data subset '{}' of dataset '{}'...", dataSubset.getName(), dataset.getName());
+            loader.accept(dataSubset);
+            LOGGER.info("Finished loading data subset '{}' of dataset '{}'.", dataSubset.getName(),
+                    dataset.getName());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to load data subset '" + dataSubset.getName()
+                    + "' of dataset '" + dataset.getName() + "'.", ex);
+        } finally {
+            acquired.forEach(Semaphore::release);
+        }
+    }
+
+    private void reportFailures(Dataset dataset, Map<DataSubset, CompletableFuture<Void>> futures) {
+        Map<DataSubset, Throwable> failures = new LinkedHashMap<>();
+        futures.forEach((subset, future) -> {
+            try {
+                future.join();
+            } catch (CompletionException ex) {
+                LOGGER.error("Failed to load data subset '{}' of dataset '{}'.", subset.getName(), dataset.getName(),
+                        ex.getCause());
+                failures.put(subset, ex.getCause());
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            List<String> failedNames = new ArrayList<>();
+            failures.keySet().forEach(subset -> failedNames.add(subset.getName()));
+
+            RuntimeException exception = new RuntimeException("Failed to load the following data subset(s) of dataset '"
+                    + dataset.getName() + "': " + failedNames + ".");
+            failures.values().forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+}
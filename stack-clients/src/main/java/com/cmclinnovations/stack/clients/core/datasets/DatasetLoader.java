@@ -3,8 +3,12 @@ package com.cmclinnovations.stack.clients.core.datasets;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -15,7 +19,11 @@ import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
 import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.Queries;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedAcyclicGraph;
 import org.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.cmclinnovations.stack.clients.blazegraph.BlazegraphClient;
 import com.cmclinnovations.stack.clients.core.EndpointNames;
@@ -39,14 +47,64 @@ import uk.ac.cam.cares.jps.base.query.RemoteStoreClient;
 
 public class DatasetLoader {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetLoader.class);
+
     private static final ServiceManager serviceManager = new ServiceManager(false);
 
     private static final ObjectMapper objectMapper = JsonHelper.getMapper();
 
+    /**
+     * Name of the environment variable that sets the maximum number of datasets
+     * that are loaded concurrently, by default they are loaded one at a time.
+     */
+    public static final String DATASET_LOAD_CONCURRENCY_KEY = "DATASET_LOAD_CONCURRENCY";
+
+    /**
+     * Name of the environment variable that enables skipping data subsets whose
+     * config and input files haven't changed since they were last loaded.
+     */
+    public static final String INCREMENTAL_LOAD_KEY = "INCREMENTAL_LOAD";
+
+    /**
+     * Name of the environment variable that sets the number of datasets whose
+     * catalog entries are combined into a single update request, by default the
+     * catalog is updated after each dataset is loaded.
+     */
+    public static final String CATALOG_UPDATE_BATCH_SIZE_KEY = "CATALOG_UPDATE_BATCH_SIZE";
+
+    static final Path MANIFEST_FILE = Path.of(StackClient.getScratchDir(), "data_uploader",
+            "manifest.json");
+
     private final String catalogNamespace;
 
+    private final DataSubsetScheduler dataSubsetScheduler = new DataSubsetScheduler();
+
+    private final DataSubsetManifest manifest;
+
+    private final int catalogUpdateBatchSize;
+
+    /**
+     * Catalog updates for datasets that have been loaded but not yet recorded in
+     * the catalog, in the order that the datasets were loaded.
+     */
+    private final List<String> pendingCatalogUpdates = new ArrayList<>();
+
+    /**
+     * Names of the datasets whose SPARQL endpoint repositories still need to be
+     * created.
+     */
+    private final List<String> pendingRepositories = new ArrayList<>();
+
     public DatasetLoader(String catalogNamespace) {
         this.catalogNamespace = catalogNamespace;
+        this.manifest = StackClient.getBooleanSetting(INCREMENTAL_LOAD_KEY, false)
+                ? DataSubsetManifest.load(MANIFEST_FILE)
+                : null;
+        this.catalogUpdateBatchSize = StackClient.getIntegerSetting(CATALOG_UPDATE_BATCH_SIZE_KEY, 1);
+        if (catalogUpdateBatchSize < 1) {
+            throw new IllegalArgumentException("The value of '" + CATALOG_UPDATE_BATCH_SIZE_KEY
+                    + "' must be at least 1, '" + catalogUpdateBatchSize + "' provided.");
+        }
     }
 
     public DatasetLoader() {
@@ -57,22 +115,32 @@ public class DatasetLoader {
 
         List<Dataset> allDatasets = DatasetReader.getAllDatasets(configPath);
 
-        Stream<Dataset> selectedDatasets = DatasetReader.getStackSpecificDatasets(allDatasets, selectedDatasetName);
+        DirectedAcyclicGraph<Dataset, DefaultEdge> selectedDatasets = DatasetReader
+                .getStackSpecificDatasetGraph(allDatasets, selectedDatasetName);
 
-        loadDatasets(selectedDatasets);
+        int maxConcurrency = StackClient.getIntegerSetting(DATASET_LOAD_CONCURRENCY_KEY, 1);
+        try {
+            if (maxConcurrency > 1) {
+                new DatasetScheduler(maxConcurrency).run(selectedDatasets, this::loadDatasetContents);
+            } else {
+                selectedDatasets.forEach(this::loadDatasetContents);
+            }
+        } catch (RuntimeException ex) {
+            // Record the datasets that were loaded, even if others failed
+            finishLoadingAfterFailure(ex);
+            throw ex;
+        }
 
-        createIncomingStackRepository();
+        createIncomingStackRepository(finishLoading());
 
     }
 
-    private void createIncomingStackRepository() {
+    private void createIncomingStackRepository(List<ServiceDescription> serviceDescriptions) {
         Rdf4jClient rdf4jClient = Rdf4jClient.getInstance();
 
-        List<ServiceDescription> serviceDescriptions = getServiceDescriptions();
-
         List<String> ids = serviceDescriptions.stream()
                 .filter(sd -> sd.getType().equals(SparqlConstants.RDF4J_SERVICE_STRING))
-                .map(ServiceDescription::getId).collect(Collectors.toList());
+                .map(ServiceDescription::getId).distinct().collect(Collectors.toList());
         ids.add(Rdf4jService.DATASET_CATALOG_REPO_ID);
         if (!ids.isEmpty()) {
             rdf4jClient.createFederatedRepository(Rdf4jService.IN_STACK_REPO_ID, Rdf4jService.IN_STACK_REPO_TITLE, ids);
@@ -80,14 +148,28 @@ public class DatasetLoader {
     }
 
     public void loadDatasets(Collection<Dataset> selectedDatasets) {
-        selectedDatasets.forEach(this::loadDataset);
+        loadDatasets(selectedDatasets.stream());
     }
 
     public void loadDatasets(Stream<Dataset> selectedDatasets) {
-        selectedDatasets.forEach(this::loadDataset);
+        try {
+            selectedDatasets.forEachOrdered(this::loadDatasetContents);
+        } catch (RuntimeException ex) {
+            finishLoadingAfterFailure(ex);
+            throw ex;
+        }
+        finishLoading();
     }
 
     public void loadDataset(Dataset dataset) {
+        loadDatasets(Stream.of(dataset));
+    }
+
+    /**
+     * Load a dataset, its catalog entry is only written once enough datasets
+     * have been loaded to fill a batch or {@link #finishLoading()} is called.
+     */
+    private void loadDatasetContents(Dataset dataset) {
         Path directory = dataset.getDirectory();
 
         if (!dataset.isSkip()) {
@@ -96,23 +178,130 @@ public class DatasetLoader {
             configurePostgres(dataset, dataSubsets);
 
             List<String> ontologyDatasetNames = dataset.getOntologyDatasetNames();
+            if (!ontologyDatasetNames.isEmpty()) {
+                // The ontology datasets are found through the catalog
+                flushCatalogUpdates();
+            }
 
             // Ensure Blazegraph namespace exists, if specified
             configureBlazegraph(dataset, ontologyDatasetNames);
 
             configureGeoServer(dataset, directory);
 
-            dataSubsets.forEach(subset -> subset.load(dataset));
+            // The remaining steps can depend on any of the data subsets so they are only
+            // run once all of the data subsets have been loaded
+            Set<DataSubset> unchangedDataSubsets = ConcurrentHashMap.newKeySet();
+            loadDataSubsets(dataset, unchangedDataSubsets);
 
             configureOntop(dataset, directory, ontologyDatasetNames);
 
             // record added datasets in the default kb namespace
-            BlazegraphClient.getInstance().getRemoteStoreClient(catalogNamespace)
-                    .executeUpdate(new DCATUpdateQuery().getUpdateQuery(dataset));
+            addCatalogUpdate(dataset.getName(),
+                    new DCATUpdateQuery().getUpdateQuery(dataset, unchangedDataSubsets));
 
             runRules(dataset, directory);
+        }
+    }
 
-            createSparqlEndpointRdf4jRepos(dataset.getName());
+    private void addCatalogUpdate(String datasetName, String update) {
+        boolean full;
+        synchronized (pendingCatalogUpdates) {
+            pendingCatalogUpdates.add(update);
+            pendingRepositories.add(datasetName);
+            full = pendingCatalogUpdates.size() >= catalogUpdateBatchSize;
+        }
+        if (full) {
+            flushCatalogUpdates();
+        }
+    }
+
+    /**
+     * Write the pending catalog updates in a single request. Datasets are only
+     * loaded after the datasets that they reference so the updates are sent in
+     * the order that they were added.
+     */
+    private void flushCatalogUpdates() {
+        synchronized (pendingCatalogUpdates) {
+            if (!pendingCatalogUpdates.isEmpty()) {
+                // Only cleared once written, so that a later flush can retry them
+                BlazegraphClient.getInstance().getRemoteStoreClient(catalogNamespace)
+                        .executeUpdate(String.join(";\n", pendingCatalogUpdates));
+                pendingCatalogUpdates.clear();
+            }
+        }
+    }
+
+    /**
+     * Write any pending catalog updates and create the SPARQL endpoint
+     * repositories for the datasets loaded since this was last called.
+     *
+     * @return the descriptions of all of the services in the catalog
+     */
+    private List<ServiceDescription> finishLoading() {
+        flushCatalogUpdates();
+
+        List<String> datasetNames;
+        synchronized (pendingCatalogUpdates) {
+            datasetNames = new ArrayList<>(pendingRepositories);
+            pendingRepositories.clear();
+        }
+
+        // Read the catalog once rather than once per dataset
+        List<ServiceDescription> serviceDescriptions = getServiceDescriptions();
+        Map<String, List<ServiceDescription>> serviceDescriptionsByDataset = serviceDescriptions.stream()
+                .filter(sd -> null != sd.getDataset())
+                .collect(Collectors.groupingBy(ServiceDescription::getDataset));
+        datasetNames.forEach(datasetName -> createSparqlEndpointRdf4jRepos(
+                serviceDescriptionsByDataset.getOrDefault(datasetName, List.of())));
+
+        return serviceDescriptions;
+    }
+
+    /**
+     * Call {@link #finishLoading()} after loading has failed, without letting a
+     * failure here hide the one that stopped the loading.
+     */
+    private void finishLoadingAfterFailure(RuntimeException loadException) {
+        try {
+            finishLoading();
+        } catch (RuntimeException ex) {
+            loadException.addSuppressed(ex);
+        }
+    }
+
+    private void loadDataSubsets(Dataset dataset, Set<DataSubset> unchangedDataSubsets) {
+        // The manifest is only updated once all of the data subsets have been loaded,
+        // and any bulk load committed, so that data subsets aren't recorded as loaded
+        // when their data never made it into the stores
+        Set<DataSubset> loadedDataSubsets = ConcurrentHashMap.newKeySet();
+        if (dataset.usesBlazegraph()) {
+            try (BlazegraphClient.BulkLoad bulkLoad = BlazegraphClient.getInstance()
+                    .beginBulkLoad(dataset.getNamespace())) {
+                dataSubsetScheduler.load(dataset,
+                        subset -> loadDataSubset(dataset, subset, unchangedDataSubsets, loadedDataSubsets));
+                bulkLoad.finish();
+            }
+        } else {
+            dataSubsetScheduler.load(dataset,
+                    subset -> loadDataSubset(dataset, subset, unchangedDataSubsets, loadedDataSubsets));
+        }
+
+        if (null != manifest) {
+            loadedDataSubsets.forEach(dataSubset -> manifest.update(dataset, dataSubset));
+        }
+    }
+
+    private void loadDataSubset(Dataset dataset, DataSubset dataSubset, Set<DataSubset> unchangedDataSubsets,
+            Set<DataSubset> loadedDataSubsets) {
+        if (null == manifest || dataSubset.isSkip()) {
+            dataSubset.load(dataset);
+        } else if (manifest.isUnchanged(dataset, dataSubset)) {
+            LOGGER.info("Data subset '{}' of dataset '{}' is unchanged since it was last loaded, skipping.",
+                    dataSubset.getName(), dataset.getName());
+            unchangedDataSubsets.add(dataSubset);
+        } else {
+            dataSubset.load(dataset);
+            loadedDataSubsets.add(dataSubset);
         }
     }
 
@@ -121,6 +310,7 @@ public class DatasetLoader {
         private String title;
         private String url;
         private String type;
+        private String dataset;
 
         public String getId() {
             return id;
@@ -138,11 +328,16 @@ public class DatasetLoader {
             return type;
         }
 
-    }
+        /**
+         * @return the title of the dataset that the service serves
+         */
+        public String getDataset() {
+            return dataset;
+        }
 
-    private void createSparqlEndpointRdf4jRepos(String datasetName) {
-        List<ServiceDescription> serviceDescriptions = getServiceDescriptions(datasetName);
+    }
 
+    private void createSparqlEndpointRdf4jRepos(List<ServiceDescription> serviceDescriptions) {
         Rdf4jClient rdf4jClient = Rdf4jClient.getInstance();
 
         serviceDescriptions.stream().filter(sd -> sd.getType().equals(SparqlConstants.BLAZEGRAPH_SERVICE_STRING))
@@ -169,27 +364,22 @@ public class DatasetLoader {
     }
 
     private List<ServiceDescription> getServiceDescriptions() {
-        return getServiceDescriptions(null);
-    }
-
-    private List<ServiceDescription> getServiceDescriptions(String datasetName) {
         Variable idVar = SparqlBuilder.var("id");
         Variable titleVar = SparqlBuilder.var("title");
         Variable urlVar = SparqlBuilder.var("url");
         Variable typeVar = SparqlBuilder.var("type");
+        Variable datasetVar = SparqlBuilder.var("dataset");
 
         Variable serviceVar = SparqlBuilder.var("service");
 
-        SelectQuery query = Queries.SELECT(idVar, titleVar, urlVar, typeVar)
+        SelectQuery query = Queries.SELECT(idVar, titleVar, urlVar, typeVar, datasetVar)
                 .where(
                         serviceVar.isA(typeVar)
                                 .andHas(DCTERMS.IDENTIFIER, idVar)
                                 .andHas(DCTERMS.TITLE, titleVar)
-                                .andHas(DCAT.ENDPOINT_URL, urlVar));
-
-        if (null != datasetName)
-            query.where(serviceVar.has(PropertyPathBuilder.of(DCAT.SERVES_DATASET).then(DCTERMS.TITLE).build(),
-                    datasetName));
+                                .andHas(DCAT.ENDPOINT_URL, urlVar),
+                        serviceVar.has(PropertyPathBuilder.of(DCAT.SERVES_DATASET).then(DCTERMS.TITLE).build(),
+                                datasetVar).optional());
 
         JSONArray queryResult = BlazegraphClient.getInstance().getRemoteStoreClient(catalogNamespace)
                 .executeQuery(query.getQueryString());
@@ -259,35 +449,62 @@ public class DatasetLoader {
     private void configureOntop(Dataset dataset, Path directory, List<String> ontologyDatasetNames) {
         if (dataset.usesOntop()) {
             String newOntopServiceName = dataset.getOntopName();
+            boolean shared = OntopClient.isSharedModeEnabled();
+            // In shared mode the dataset is served by the container for its database and
+            // its name is only an alias for that container
+            String ontopContainerName = shared ? OntopClient.getSharedOntopName(dataset.getDatabase())
+                    : newOntopServiceName;
+
+            // The ServiceManager is shared between datasets that may be loaded concurrently
+            synchronized (serviceManager) {
+                if (!EndpointNames.ONTOP.equals(ontopContainerName)) {
+                    ServiceConfig newOntopServiceConfig = serviceManager.duplicateServiceConfig(EndpointNames.ONTOP,
+                            ontopContainerName);
+
+                    newOntopServiceConfig.setEnvironmentVariable(OntopService.ONTOP_DB_NAME, dataset.getDatabase());
+                    newOntopServiceConfig.getEndpoints()
+                            .replaceAll((endpointName, connection) -> new Connection(
+                                    connection.getUrl(),
+                                    connection.getUri(),
+                                    URI.create(connection.getExternalPath().toString()
+                                            .replace(EndpointNames.ONTOP, ontopContainerName))));
+                }
+
+                if (shared) {
+                    serviceManager.addServiceAlias(StackClient.getStackName(), ontopContainerName,
+                            newOntopServiceName);
+                    OntopClient.getInstance(ontopContainerName).writeAliasEndpointConfig(newOntopServiceName);
+                } else {
+                    serviceManager.initialiseService(StackClient.getStackName(), newOntopServiceName);
+                }
+            }
 
-            ServiceConfig newOntopServiceConfig = serviceManager.duplicateServiceConfig(EndpointNames.ONTOP,
-                    newOntopServiceName);
-
-            newOntopServiceConfig.setEnvironmentVariable(OntopService.ONTOP_DB_NAME, dataset.getDatabase());
-            newOntopServiceConfig.getEndpoints()
-                    .replaceAll((endpointName, connection) -> new Connection(
-                            connection.getUrl(),
-                            connection.getUri(),
-                            URI.create(connection.getExternalPath().toString()
-                                    .replace(EndpointNames.ONTOP, newOntopServiceName))));
-
-            serviceManager.initialiseService(StackClient.getStackName(), newOntopServiceName);
-
-            List<String> ontopMappings = dataset.getOntopMappings();
+            List<Path> ontopMappings = dataset.getOntopMappings().stream().map(directory::resolve)
+                    .collect(Collectors.toList());
 
-            OntopClient ontopClient = OntopClient.getInstance(newOntopServiceName);
-            ontopMappings.forEach(mapping -> ontopClient.updateOBDA(directory.resolve(mapping)));
+            OntopClient ontopClient = OntopClient.getInstance(ontopContainerName);
+            if (shared) {
+                // The dataset's mappings replace the ones it added before, without affecting
+                // those of the other datasets in the container
+                ontopClient.updateOBDA(ontopMappings, newOntopServiceName);
+            } else if (!ontopMappings.isEmpty()) {
+                ontopClient.updateOBDA(ontopMappings);
+            }
 
-            if (PostGISClient.DEFAULT_DATABASE_NAME.equals(dataset.getDatabase())) {
-                OntopClient defaultOntopClient = OntopClient.getInstance(EndpointNames.ONTOP);
-                ontopMappings.forEach(mapping -> defaultOntopClient.updateOBDA(directory.resolve(mapping)));
+            if (!shared && PostGISClient.DEFAULT_DATABASE_NAME.equals(dataset.getDatabase())
+                    && !ontopMappings.isEmpty()) {
+                // The default Ontop mapping file can be updated by several datasets, the
+                // update is synchronized on the client
+                OntopClient.getInstance(EndpointNames.ONTOP).updateOBDA(ontopMappings);
             }
 
-            ontopClient.uploadOntology(catalogNamespace, ontologyDatasetNames);
+            ontopClient.uploadOntology(catalogNamespace, ontologyDatasetNames, shared);
+
+            ontopClient.uploadRules(dataset.getRules().stream().map(directory::resolve).collect(Collectors.toList()),
+                    shared);
 
-            ontopClient.uploadRules(dataset.getRules().stream().map(directory::resolve).collect(Collectors.toList()));
-            
-            ontopClient.uploadLenses(dataset.getOntopLenses().stream().map(directory::resolve).collect(Collectors.toList()));
+            ontopClient.uploadLenses(
+                    dataset.getOntopLenses().stream().map(directory::resolve).collect(Collectors.toList()), shared);
         }
     }
 }
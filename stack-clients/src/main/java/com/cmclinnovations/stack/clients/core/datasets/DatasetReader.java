@@ -17,6 +17,7 @@ import com.cmclinnovations.stack.clients.blazegraph.Namespace;
 import com.cmclinnovations.stack.clients.utils.FileUtils;
 import com.cmclinnovations.stack.clients.utils.JsonHelper;
 import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class DatasetReader {
@@ -27,6 +28,12 @@ public class DatasetReader {
     private static final ObjectMapper objectMapper = JsonHelper.getMapper();
 
     public static Stream<Dataset> getStackSpecificDatasets(List<Dataset> allDatasets, String selectedDatasetName) {
+        return StreamSupport.stream(getStackSpecificDatasetGraph(allDatasets, selectedDatasetName).spliterator(),
+                false);
+    }
+
+    public static DirectedAcyclicGraph<Dataset, DefaultEdge> getStackSpecificDatasetGraph(List<Dataset> allDatasets,
+            String selectedDatasetName) {
         Collection<Dataset> selectedDatasets;
 
         // Check to see if there is a Dataset with the same name as the Stack.
@@ -47,7 +54,7 @@ public class DatasetReader {
         // exist.
         selectedDatasets.forEach(dataset -> addToGraph(allDatasets, graph, dataset));
 
-        return StreamSupport.stream(graph.spliterator(), false);
+        return graph;
     }
 
     public static List<Dataset> getAllDatasets(Path configPath) {
@@ -69,12 +76,24 @@ public class DatasetReader {
         try {
             updateInjectableValues(configFile);
 
-            return objectMapper.readValue(configFile.toFile(), Dataset.class);
+            JsonNode datasetNode = objectMapper.readTree(configFile.toFile());
+            Dataset dataset = objectMapper.treeToValue(datasetNode, Dataset.class);
+            recordDataSubsetConfigs(dataset, datasetNode);
+            return dataset;
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read in dataset config file '" + configFile + "'.", ex);
         }
     }
 
+    // Keep the JSON of each data subset so that changes to it can be detected
+    private static void recordDataSubsetConfigs(Dataset dataset, JsonNode datasetNode) {
+        JsonNode dataSubsetNodes = datasetNode.path("dataSubsets");
+        List<DataSubset> dataSubsets = dataset.getDataSubsets();
+        for (int i = 0; i < dataSubsets.size() && i < dataSubsetNodes.size(); i++) {
+            dataSubsets.get(i).setConfig(dataSubsetNodes.get(i).toString());
+        }
+    }
+
     private static void updateInjectableValues(Path configFile) {
 
         InjectableValues.Std iv = new InjectableValues.Std();
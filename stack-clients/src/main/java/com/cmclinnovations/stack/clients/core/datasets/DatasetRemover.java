@@ -1,11 +1,13 @@
 package com.cmclinnovations.stack.clients.core.datasets;
 
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.stream.Stream;
 
 import com.cmclinnovations.stack.clients.blazegraph.BlazegraphClient;
 import com.cmclinnovations.stack.clients.core.StackClient;
 import com.cmclinnovations.stack.clients.geoserver.GeoServerClient;
+import com.cmclinnovations.stack.clients.ontop.OntopClient;
 import com.cmclinnovations.stack.clients.postgis.PostGISClient;
 import com.cmclinnovations.stack.services.ServiceManager;
 
@@ -37,7 +39,20 @@ public class DatasetRemover {
 
             String ontopServiceName = dataset.getOntopName();
 
-            serviceManager.removeService(StackClient.getStackName(), ontopServiceName);
+            if (OntopClient.isSharedModeEnabled()) {
+                // Only remove the dataset's mappings, and the alias that routes to them, as the
+                // container serves other datasets. The ontology, rules and lenses merged into
+                // the container's files can't be attributed to a single dataset so they are kept.
+                if (dataset.usesOntop()) {
+                    OntopClient ontopClient = OntopClient
+                            .getInstance(OntopClient.getSharedOntopName(dataset.getDatabase()));
+                    ontopClient.removeOBDA(ontopServiceName);
+                    serviceManager.removeServiceAlias(StackClient.getStackName(), ontopServiceName);
+                    ontopClient.removeAliasEndpointConfig(ontopServiceName);
+                }
+            } else {
+                serviceManager.removeService(StackClient.getStackName(), ontopServiceName);
+            }
 
             GeoServerClient geoServerClient = GeoServerClient.getInstance();
             String workspaceName = dataset.getWorkspaceName();
@@ -65,6 +80,11 @@ public class DatasetRemover {
             // record added datasets in the default kb namespace
             BlazegraphClient.getInstance().getRemoteStoreClient(catalogNamespace)
                     .executeUpdate(new DCATUpdateQuery().getDeleteQuery(dataset));
+
+            // Ensure the dataset is reloaded in full if it is added again
+            if (Files.exists(DatasetLoader.MANIFEST_FILE)) {
+                DataSubsetManifest.load(DatasetLoader.MANIFEST_FILE).remove(dataset);
+            }
         }
     }
 
@@ -0,0 +1,117 @@
+package com.cmclinnovations.stack.clients.core.datasets;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the datasets in a dependency graph concurrently, starting each dataset
+ * as soon as all of the datasets that it references have been loaded.
+ */
+class DatasetScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetScheduler.class);
+
+    private final int maxConcurrency;
+
+    DatasetScheduler(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of concurrently loaded datasets must be at least 1, '" + maxConcurrency
+                            + "' provided.");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Load all of the datasets in the graph.
+     *
+     * If a dataset fails to load then only the datasets that (directly or
+     * indirectly) reference it are not loaded, all other datasets are still
+     * loaded. An exception summarising the failures is thrown once every dataset
+     * that can be loaded has been loaded.
+     *
+     * @param graph  dependency graph, with edges pointing from the referenced
+     *               dataset to the dataset that references it
+     * @param loader method that loads a single dataset
+     */
+    void run(DirectedAcyclicGraph<Dataset, DefaultEdge> graph, Consumer<Dataset> loader) {
+        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency);
+        try {
+            Set<Dataset> failedDatasets = ConcurrentHashMap.newKeySet();
+            Map<Dataset, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+            // The graph iterates in topological order so the futures of the referenced
+            // datasets have always been created before they are needed.
+            for (Dataset dataset : graph) {
+                CompletableFuture<?>[] dependencies = graph.incomingEdgesOf(dataset).stream()
+                        .map(graph::getEdgeSource)
+                        .map(futures::get)
+                        .toArray(CompletableFuture<?>[]::new);
+
+                futures.put(dataset, CompletableFuture.allOf(dependencies)
+                        .thenRunAsync(() -> load(dataset, loader, failedDatasets), executor));
+            }
+
+            reportFailures(futures, failedDatasets);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void load(Dataset dataset, Consumer<Dataset> loader, Set<Dataset> failedDatasets) {
+        try {
+            LOGGER.info("Loading dataset '{}'...", dataset.getName());
+            loader.accept(dataset);
+            LOGGER.info("Finished loading dataset '{}'.", dataset.getName());
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to load dataset '{}'.", dataset.getName(), ex);
+            failedDatasets.add(dataset);
+            throw ex;
+        }
+    }
+
+    private void reportFailures(Map<Dataset, CompletableFuture<Void>> futures, Set<Dataset> failedDatasets) {
+        Map<Dataset, Throwable> failures = new LinkedHashMap<>();
+        futures.forEach((dataset, future) -> {
+            try {
+                future.join();
+            } catch (CompletionException ex) {
+                failures.put(dataset, ex.getCause());
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            List<String> failedNames = failures.keySet().stream()
+                    .filter(failedDatasets::contains)
+                    .map(Dataset::getName)
+                    .collect(Collectors.toList());
+            List<String> notLoadedNames = failures.keySet().stream()
+                    .filter(dataset -> !failedDatasets.contains(dataset))
+                    .map(Dataset::getName)
+                    .collect(Collectors.toList());
+
+            RuntimeException exception = new RuntimeException("Failed to load the following dataset(s): "
+                    + failedNames + ". The following dataset(s) were not loaded because they reference a dataset"
+                    + " that failed to load: " + notLoadedNames + ".");
+            failures.entrySet().stream()
+                    .filter(entry -> failedDatasets.contains(entry.getKey()))
+                    .map(Map.Entry::getValue)
+                    .forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+}
@@ -31,6 +31,9 @@ public class Raster extends GeoServerDataSubset {
 
     @Override
     public void createLayers(String workspaceName, String database) {
+        // Read the GeoTIFFs a whole internal tile at a time, unless told otherwise
+        int blockSize = gdalOptions.getBlockSize();
+        geoServerSettings.setDefaultSuggestedTileSize(blockSize + "," + blockSize);
         GeoServerClient.getInstance()
                 .createGeoTiffLayer(workspaceName, getTable(), database, getSchema(),
                         geoServerSettings, mdimSettings);
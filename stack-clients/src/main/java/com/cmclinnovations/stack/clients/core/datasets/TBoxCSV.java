@@ -1,19 +1,59 @@
 package com.cmclinnovations.stack.clients.core.datasets;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.cmclinnovations.stack.clients.blazegraph.BlazegraphClient;
+import com.cmclinnovations.stack.clients.core.StackClient;
+import com.cmclinnovations.stack.clients.utils.FileUtils;
 import com.cmclinnovations.stack.clients.utils.LocalTempDir;
 import com.cmclinnovations.stack.clients.utils.TempDir;
 
 import uk.ac.cam.cares.jps.base.converter.TBoxGeneration;
-import uk.ac.cam.cares.jps.base.query.RemoteStoreClient;
 
 public class TBoxCSV extends DataSubset {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TBoxCSV.class);
+
+    /**
+     * Name of the environment variable that sets the maximum number of OWL files
+     * generated from a data subset's CSV files that are uploaded at the same
+     * time.
+     */
+    public static final String TBOX_CONCURRENCY_KEY = "TBOX_CONCURRENCY";
+
+    /**
+     * Name of the environment variable that sets the number of CSV files in a
+     * data subset at or above which the generated ontologies are merged and
+     * uploaded together, rather than one at a time. Zero disables merging.
+     */
+    public static final String TBOX_MERGE_THRESHOLD_KEY = "TBOX_MERGE_THRESHOLD";
+
+    private static final String MERGED_DIR = "merged";
+
+    /**
+     * Held while generating an OWL file, as TBoxGeneration isn't thread-safe and
+     * several TBoxCSV data subsets can be loaded at the same time.
+     */
+    private static final Object TBOX_GENERATION_LOCK = new Object();
+
     @Override
     public boolean usesBlazegraph() {
         return !isSkip();
@@ -22,10 +62,12 @@ public class TBoxCSV extends DataSubset {
     @Override
     void loadInternal(Dataset dataset) {
 
-        TBoxGeneration tBoxGenerator = new TBoxGeneration();
-
-        RemoteStoreClient remoteStoreClient = BlazegraphClient.getInstance()
-                .getRemoteStoreClient(dataset.getNamespace());
+        int concurrency = StackClient.getIntegerSetting(TBOX_CONCURRENCY_KEY, 2);
+        int mergeThreshold = StackClient.getIntegerSetting(TBOX_MERGE_THRESHOLD_KEY, 0);
+        if (concurrency < 1 || mergeThreshold < 0) {
+            throw new IllegalArgumentException("The value of '" + TBOX_CONCURRENCY_KEY
+                    + "' must be at least 1 and the value of '" + TBOX_MERGE_THRESHOLD_KEY + "' can't be negative.");
+        }
 
         Path subdirectory = this.getSubdirectory()
                 .orElseThrow(() -> new RuntimeException("No 'subdirectory' specified - required for TBoxCSV data"));
@@ -39,27 +81,59 @@ public class TBoxCSV extends DataSubset {
         try (TempDir outputDir = new LocalTempDir();
                 // List all of the CSV files in the datasubset's directory
                 Stream<Path> files = Files.list(datasubsetDir)) {
-            files.filter(path -> path.getFileName().toString().endsWith(".csv")).forEach(csvFile -> {
-                // Calculate path for current OWL file
-                Path owlFile = outputDir.getPath()
-                        .resolve(csvFile.getFileName().toString().replace(".csv", ".owl"));
-
-                // Generate OWL file from CSV file
-                tBoxGenerator.generateTBox(
-                        csvFile.toAbsolutePath().toString(),
-                        owlFile.toAbsolutePath().toString());
-
-                try {
-                    // Upload OWL file to the triple store
-                    remoteStoreClient.uploadFile(owlFile.toFile());
-                } catch (Exception ex) {
-                    throw new RuntimeException(
-                            "Failed to upload ontology file '" + owlFile + "' to the endpoint at '" +
-                                    BlazegraphClient.getInstance().readEndpointConfig().getUrl(dataset.getNamespace())
-                                    + "'.",
-                            ex);
+            List<Path> csvFiles = files.filter(path -> path.getFileName().toString().endsWith(".csv"))
+                    .sorted()
+                    .collect(Collectors.toList());
+            boolean merge = 0 < mergeThreshold && csvFiles.size() >= mergeThreshold;
+
+            // The OWL files are generated one at a time as TBoxGeneration, and the
+            // TBoxManagement it uses, can share state between instances through static
+            // fields, so only the uploads are run concurrently and generation is
+            // serialised across all TBoxCSV data subsets
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            List<Path> owlFiles = new ArrayList<>();
+            List<CompletableFuture<Void>> uploads = new ArrayList<>();
+            try {
+                for (Path csvFile : csvFiles) {
+                    // Each OWL file gets its own directory so that it can be uploaded as soon as
+                    // it has been generated
+                    String fileName = csvFile.getFileName().toString();
+                    Path fileDir = outputDir.getPath().resolve(FileUtils.removeExtension(fileName));
+                    Path owlFile = fileDir.resolve(fileName.replace(".csv", ".owl"));
+                    Files.createDirectories(fileDir);
+
+                    // Generate OWL file from CSV file
+                    synchronized (TBOX_GENERATION_LOCK) {
+                        new TBoxGeneration().generateTBox(
+                                csvFile.toAbsolutePath().toString(),
+                                owlFile.toAbsolutePath().toString());
+                    }
+                    owlFiles.add(owlFile);
+
+                    if (!merge) {
+                        // Upload the OWL file to the triple store while the next one is generated
+                        uploads.add(CompletableFuture.runAsync(
+                                () -> BlazegraphClient.getInstance().uploadRDFFiles(fileDir, dataset.getNamespace()),
+                                executor));
+                    }
                 }
-            });
+                joinUploads(uploads);
+            } catch (IOException | RuntimeException ex) {
+                // Let the uploads that have already started finish before the temporary
+                // directory is deleted
+                uploads.forEach(upload -> upload.handle((result, failure) -> null).join());
+                throw ex;
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (merge) {
+                LOGGER.info("Merging {} ontologies generated for the '{}' data subset.", owlFiles.size(),
+                        getName());
+                Path mergedDir = outputDir.getPath().resolve(MERGED_DIR);
+                mergeOntologies(owlFiles, mergedDir.resolve("tbox.nt"));
+                BlazegraphClient.getInstance().uploadRDFFiles(mergedDir, dataset.getNamespace());
+            }
         } catch (IOException ex) {
             throw new RuntimeException(
                     "Failed to create temporary directory for OWL files generated for the '" + getName()
@@ -68,4 +142,38 @@ public class TBoxCSV extends DataSubset {
         }
     }
 
+    /**
+     * Write the statements from all of the OWL files into a single N-Triples
+     * file.
+     */
+    private static void mergeOntologies(List<Path> owlFiles, Path mergedFile) throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        owlFiles.forEach(owlFile -> RDFDataMgr.read(model, owlFile.toAbsolutePath().toString(), Lang.RDFXML));
+
+        Files.createDirectories(mergedFile.getParent());
+        try (OutputStream outputStream = Files.newOutputStream(mergedFile)) {
+            RDFDataMgr.write(outputStream, model, Lang.NTRIPLES);
+        }
+    }
+
+    private void joinUploads(List<CompletableFuture<Void>> uploads) {
+        List<Throwable> failures = new ArrayList<>();
+        for (CompletableFuture<Void> upload : uploads) {
+            try {
+                upload.join();
+            } catch (CompletionException ex) {
+                LOGGER.error("Failed to upload an ontology generated for the '{}' data subset.", getName(),
+                        ex.getCause());
+                failures.add(ex.getCause());
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            RuntimeException exception = new RuntimeException("Failed to upload " + failures.size() + " of "
+                    + uploads.size() + " ontologies generated for the '" + getName() + "' data subset.");
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
 }
@@ -1,9 +1,19 @@
 package com.cmclinnovations.stack.clients.core.datasets;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.cmclinnovations.stack.clients.gdal.GDALClient;
 import com.cmclinnovations.stack.clients.gdal.Ogr2OgrOptions;
+import com.cmclinnovations.stack.clients.postgis.CSVCopyOptions;
+import com.cmclinnovations.stack.clients.postgis.PostGISClient;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Tabular extends PostgresDataSubset {
@@ -11,15 +21,43 @@ public class Tabular extends PostgresDataSubset {
     @JsonProperty
     private Ogr2OgrOptions ogr2ogrOptions = new Ogr2OgrOptions();
 
+    @JsonProperty
+    private final Optional<CSVCopyOptions> copyOptions = Optional.empty();
+
     public Ogr2OgrOptions getOptions() {
         return ogr2ogrOptions;
     }
 
     @Override
     public void loadData(Path dirPath, String database, String baseIRI) {
-        GDALClient.getInstance()
-                .uploadVectorFilesToPostGIS(database, getSchema(), getTable(), dirPath.toString(), ogr2ogrOptions,
-                        false);
+        if (copyOptions.isPresent()) {
+            loadCSVFiles(dirPath, database);
+        } else {
+            GDALClient.getInstance()
+                    .uploadVectorFilesToPostGIS(database, getSchema(), getTable(), dirPath.toString(), ogr2ogrOptions,
+                            false);
+        }
+    }
+
+    private void loadCSVFiles(Path dirPath, String database) {
+        Map<Boolean, List<Path>> files;
+        try (Stream<Path> paths = Files.list(dirPath)) {
+            files = paths.filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.partitioningBy(path -> path.getFileName().toString()
+                            .toLowerCase(Locale.ROOT).matches(".*\\.csv(\\.gz)?")));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to list the files in the directory '" + dirPath + "'.", ex);
+        }
+
+        if (!files.get(false).isEmpty()) {
+            throw new RuntimeException("The 'copyOptions' of the '" + getName()
+                    + "' data subset can only be used to load CSV files, remove them to load the other files: "
+                    + files.get(false));
+        }
+
+        PostGISClient.getInstance().uploadCSVFiles(database, getSchema(), getTable(), files.get(true),
+                copyOptions.get());
     }
 
 }
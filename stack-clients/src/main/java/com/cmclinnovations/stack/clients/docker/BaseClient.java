@@ -1,7 +1,7 @@
 package com.cmclinnovations.stack.clients.docker;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 
@@ -9,7 +9,7 @@ import com.cmclinnovations.stack.clients.core.EndpointConfig;
 
 abstract class BaseClient {
 
-    protected static final Map<String, EndpointConfig> endpointsConfigs = new HashMap<>();
+    protected static final Map<String, EndpointConfig> endpointsConfigs = new ConcurrentHashMap<>();
 
     public static final <O extends EndpointConfig> O readEndpointConfig(String otherContainerName,
             Class<O> otherEndpointConfigClass) {
@@ -22,4 +22,9 @@ abstract class BaseClient {
         endpointsConfigs.remove(endpointConfig.getName());
         DockerConfigHandler.writeEndpointConfig(endpointConfig);
     }
+
+    public static final void removeEndpointConfig(String endpointName) {
+        endpointsConfigs.remove(endpointName);
+        DockerConfigHandler.removeEndpointConfig(endpointName);
+    }
 }
@@ -40,6 +40,10 @@ public class ContainerClient extends BaseClient {
         DockerClient.getInstance().makeDir(containerId, directoryPath);
     }
 
+    protected final FileSystemBatch createFileSystemBatch(String containerId) {
+        return DockerClient.getInstance().createFileSystemBatch(containerId);
+    }
+
     protected final TempDir makeLocalTempDir() {
         try {
             return new LocalTempDir();
@@ -89,6 +93,16 @@ public class ContainerClient extends BaseClient {
         return DockerClient.getInstance().retrieveFile(containerId, remoteFilePath);
     }
 
+    protected final void retrieveFiles(String containerId, String remoteDirPath, Path localDirPath)
+            throws IOException {
+        DockerClient.getInstance().retrieveFiles(containerId, remoteDirPath, localDirPath);
+    }
+
+    protected final void retrieveFile(String containerId, String remoteFilePath, Path localFilePath)
+            throws IOException {
+        DockerClient.getInstance().retrieveFile(containerId, remoteFilePath, localFilePath);
+    }
+
     protected final Optional<Container> getContainer(String containerName) {
         return DockerClient.getInstance().getContainer(containerName);
     }
@@ -1,13 +1,16 @@
 package com.cmclinnovations.stack.clients.docker;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -17,6 +20,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -49,6 +55,7 @@ import com.github.dockerjava.api.command.ListSecretsCmd;
 import com.github.dockerjava.api.command.ListVolumesCmd;
 import com.github.dockerjava.api.command.RemoveConfigCmd;
 import com.github.dockerjava.api.command.RemoveSecretCmd;
+import com.github.dockerjava.api.exception.ConflictException;
 import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.Config;
 import com.github.dockerjava.api.model.Container;
@@ -66,11 +73,40 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
 
     protected static final Logger LOGGER = LoggerFactory.getLogger(DockerClient.class);
 
+    /**
+     * Name of the environment variable that sets whether the archives sent to
+     * containers are gzip compressed, by default they are not as the Docker API
+     * is normally accessed through a local socket.
+     */
+    public static final String COMPRESS_ARCHIVES_KEY = "DOCKER_COMPRESS_ARCHIVES";
+
+    /**
+     * Size of the buffer between the thread writing an archive and the Docker API
+     * reading it, this bounds the memory used when sending files.
+     */
+    private static final int ARCHIVE_PIPE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Initial and maximum delays, in milliseconds, between checks of whether an
+     * exec command has finished running.
+     */
+    private static final long EXEC_POLL_INITIAL_DELAY = 2;
+    private static final long EXEC_POLL_MAX_DELAY = 500;
+
     private final com.github.dockerjava.api.DockerClient internalClient;
 
+    private final boolean compressArchives = StackClient.getBooleanSetting(COMPRESS_ARCHIVES_KEY, false);
+
+    /**
+     * IDs of containers that have already been looked up, keyed by container name.
+     * This is shared between instances as the services are (re)started through a
+     * different instance to the one used by the clients.
+     */
+    private static final Map<String, String> containerIdCache = new ConcurrentHashMap<>();
+
     private static DockerClient instance = null;
 
-    public static DockerClient getInstance() {
+    public static synchronized DockerClient getInstance() {
         if (null == instance) {
             if (StackClient.getContainerEngineName().equals("podman")) {
                 instance = new PodmanClient();
@@ -126,6 +162,52 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
         return ex;
     }
 
+    private RuntimeException handleContainerError(String containerId, RuntimeException ex) {
+        // The container has been removed or stopped, so the cached ID is out of date
+        if (ex instanceof NotFoundException || ex instanceof ConflictException) {
+            invalidateContainerIdsFor(containerId);
+        }
+        return handleMissingAPISocketError(ex);
+    }
+
+    /**
+     * Remove the cached ID of a container so that it is looked up again the next
+     * time it is needed. This should be called whenever the service that runs the
+     * container is removed or restarted.
+     *
+     * @param containerName the name of the container, with or without the stack
+     *                      name prefix
+     */
+    public static void invalidateContainerId(String containerName) {
+        containerIdCache.remove(StackClient.removeStackName(containerName));
+    }
+
+    private static void invalidateContainerIdsFor(String containerId) {
+        containerIdCache.values().removeIf(containerId::equals);
+    }
+
+    /**
+     * Remove a stale container ID from the cache and look up the current ID of the
+     * container that it was cached for.
+     *
+     * @return the current ID, or empty if the stale ID wasn't cached or the
+     *         container can no longer be found
+     */
+    private Optional<String> refreshContainerId(String staleContainerId) {
+        Optional<String> containerName = containerIdCache.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(staleContainerId))
+                .map(Entry::getKey)
+                .findAny();
+        invalidateContainerIdsFor(staleContainerId);
+        return containerName
+                .flatMap(name -> getContainer(name).map(Container::getId)
+                        .filter(containerId -> !containerId.equals(staleContainerId))
+                        .map(containerId -> {
+                            containerIdCache.put(name, containerId);
+                            return containerId;
+                        }));
+    }
+
     public String executeSimpleCommand(String containerId, String... cmd) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         String execId = createComplexCommand(containerId, cmd)
@@ -214,10 +296,22 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
             return this;
         }
 
+        private String createExec(String targetContainerId, String[] actualCmd) {
+            try (ExecCreateCmd execCreateCmd = internalClient.execCreateCmd(targetContainerId)) {
+                return execCreateCmd.withCmd(actualCmd)
+                        .withEnv(envVars.entrySet().stream()
+                                .map(entry -> entry.getKey() + '=' + entry.getValue())
+                                .collect(Collectors.toList()))
+                        .withAttachStdin(null != inputStream)
+                        .withAttachStdout(null != outputStream)
+                        .withAttachStderr(null != errorStream)
+                        .withUser(user)
+                        .exec().getId();
+            }
+        }
+
         public String exec() {
             boolean attachStdin = null != inputStream;
-            boolean attachStdout = null != outputStream;
-            boolean attachStderr = null != errorStream;
 
             String[] actualCmd;
             if (null != hereDocument) {
@@ -233,19 +327,22 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
                 actualCmd = cmd;
             }
 
+            String currentContainerId = containerId;
             String execId;
-            try (ExecCreateCmd execCreateCmd = internalClient.execCreateCmd(this.containerId);) {
-                execId = execCreateCmd.withCmd(actualCmd)
-                        .withEnv(envVars.entrySet().stream()
-                                .map(entry -> entry.getKey() + '=' + entry.getValue())
-                                .collect(Collectors.toList()))
-                        .withAttachStdin(attachStdin)
-                        .withAttachStdout(attachStdout)
-                        .withAttachStderr(attachStderr)
-                        .withUser(user)
-                        .exec().getId();
+            try {
+                execId = createExec(containerId, actualCmd);
+            } catch (NotFoundException ex) {
+                // The cached container ID is stale, e.g. the service has been restarted, nothing
+                // has been run yet so look the container up again and retry once
+                currentContainerId = refreshContainerId(containerId)
+                        .orElseThrow(() -> handleContainerError(containerId, ex));
+                try {
+                    execId = createExec(currentContainerId, actualCmd);
+                } catch (RuntimeException retryEx) {
+                    throw handleContainerError(currentContainerId, retryEx);
+                }
             } catch (RuntimeException ex) {
-                throw handleMissingAPISocketError(ex);
+                throw handleContainerError(containerId, ex);
             }
 
             try (ExecStartCmd execStartCmd = internalClient.execStartCmd(execId)) {
@@ -278,7 +375,7 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
                     throw new RuntimeException("Docker exec command '" + Arrays.toString(cmd) + "' failed", ex);
                 }
             } catch (RuntimeException ex) {
-                throw handleMissingAPISocketError(ex);
+                throw handleContainerError(currentContainerId, ex);
             }
 
             return execId;
@@ -290,12 +387,18 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
         Long exitCode = null;
         try (InspectExecCmd inspectExecCmd = internalClient.inspectExecCmd(execId)) {
 
+            // Commands run with "wait" set have already signalled that their output has
+            // finished, so the exec has normally stopped by the first or second check. The
+            // delay is increased exponentially so that long running commands that weren't
+            // waited for don't flood the Docker API.
+            long delay = EXEC_POLL_INITIAL_DELAY;
             boolean isRunning = true;
             while (isRunning) {
                 InspectExecResponse inspectExecResponce = inspectExecCmd.exec();
                 isRunning = inspectExecResponce.isRunning();
                 if (isRunning) {
-                    Thread.sleep(500);
+                    Thread.sleep(delay);
+                    delay = Math.min(delay * 2, EXEC_POLL_MAX_DELAY);
                 } else {
                     exitCode = inspectExecResponce.getExitCodeLong();
                 }
@@ -338,6 +441,10 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
         createComplexCommand(containerId, "mkdir", "-p", directoryPath).withUser(user).exec();
     }
 
+    public FileSystemBatch createFileSystemBatch(String containerId) {
+        return new FileSystemBatch(this, containerId);
+    }
+
     private final class RemoteTempDir extends AbstractTempPath implements TempDir {
 
         private final String containerId;
@@ -370,16 +477,7 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
         public void copyTo(Path targetDir) {
             String sourcePath = toString();
             try {
-                retrieveFiles(containerId, sourcePath).forEach((path, content) -> {
-                    try {
-                        Path localAbsPath = targetDir.resolve(Path.of(path));
-                        Files.createDirectories(localAbsPath.getParent());
-                        Files.write(localAbsPath, content);
-                    } catch (IOException ex) {
-                        throw new RuntimeException("Couldn't copy file '" + path + "'' from '" + sourcePath + "' into '"
-                                + targetDir + "'.", ex);
-                    }
-                });
+                retrieveFiles(containerId, sourcePath, targetDir);
             } catch (IOException ex) {
                 throw new RuntimeException("Couldn't copy '" + sourcePath + "' into '" + targetDir + "'.", ex);
             }
@@ -404,56 +502,131 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
         executeSimpleCommand(containerId, "rm", "-r", directoryPath);
     }
 
+    @FunctionalInterface
+    private interface ArchiveWriter {
+        void write(TarArchiveOutputStream tar) throws IOException;
+    }
+
     private void sendFileEntries(String containerId, String remoteDirPath, Iterable<Entry<String, byte[]>> fileEntries)
             throws IOException {
-        // Should use the Linux path separator '/'
-        remoteDirPath = remoteDirPath.replace('\\', '/');
-
-        makeDir(containerId, remoteDirPath);
-
-        byte[] byteArray;
-
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            try (GzipCompressorOutputStream gzo = new GzipCompressorOutputStream(bos);
-                    TarArchiveOutputStream tar = new TarArchiveOutputStream(gzo)) {
-                for (Entry<String, byte[]> fileEntry : fileEntries) {
-                    addFileContentToTar(tar, fileEntry.getKey(), fileEntry.getValue());
-                }
+        sendArchive(containerId, remoteDirPath, tar -> {
+            for (Entry<String, byte[]> fileEntry : fileEntries) {
+                addFileContentToTar(tar, fileEntry.getKey(), fileEntry.getValue());
             }
-            byteArray = bos.toByteArray();
-        } catch (RuntimeException ex) {
-            throw handleMissingAPISocketError(ex);
-        }
+        });
+    }
 
-        sendTarFileContent(containerId, remoteDirPath, byteArray);
+    private void sendFilePaths(String containerId, String remoteDirPath, Iterable<Entry<String, Path>> filePaths)
+            throws IOException {
+        sendArchive(containerId, remoteDirPath, tar -> {
+            for (Entry<String, Path> filePath : filePaths) {
+                addFileToTar(tar, filePath.getKey(), filePath.getValue());
+            }
+        });
     }
 
     private void addFileContentToTar(TarArchiveOutputStream tar, String filePath, byte[] fileContent)
             throws IOException {
-        // Tar files record paths as strings and should use the Linux path separator '/'
-        filePath = filePath.replace('\\', '/');
-        TarArchiveEntry entry = new TarArchiveEntry(filePath);
-        entry.setSize(fileContent.length);
-        entry.setMode(0600);
-        tar.putArchiveEntry(entry);
+        tar.putArchiveEntry(createTarEntry(filePath, fileContent.length));
         tar.write(fileContent);
         tar.closeArchiveEntry();
     }
 
-    private void sendTarFileContent(String containerId, String remoteDirPath, byte[] byteArray) throws IOException {
-        try (InputStream is = new ByteArrayInputStream(byteArray);
+    private void addFileToTar(TarArchiveOutputStream tar, String filePath, Path file) throws IOException {
+        tar.putArchiveEntry(createTarEntry(filePath, Files.size(file)));
+        Files.copy(file, tar);
+        tar.closeArchiveEntry();
+    }
+
+    private TarArchiveEntry createTarEntry(String filePath, long size) {
+        // Tar files record paths as strings and should use the Linux path separator '/'
+        TarArchiveEntry entry = new TarArchiveEntry(filePath.replace('\\', '/'));
+        entry.setSize(size);
+        entry.setMode(0600);
+        return entry;
+    }
+
+    /**
+     * Stream an archive into a container. The archive is written on a separate
+     * thread while the Docker API reads it, so only a fixed size buffer is held in
+     * memory no matter how much is being sent.
+     *
+     * If writing the archive fails the entries that were already sent may still
+     * have been extracted into the container, they are not removed.
+     */
+    private void sendArchive(String containerId, String remoteDirPath, ArchiveWriter archiveWriter)
+            throws IOException {
+        // Should use the Linux path separator '/'
+        remoteDirPath = remoteDirPath.replace('\\', '/');
+
+        makeDir(containerId, remoteDirPath);
+
+        PipedInputStream pipedInputStream = new PipedInputStream(ARCHIVE_PIPE_BUFFER_SIZE);
+        PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+        CompletableFuture<Void> writerResult = new CompletableFuture<>();
+
+        Thread writerThread = new Thread(() -> {
+            try {
+                OutputStream os = compressArchives ? new GzipCompressorOutputStream(pipedOutputStream)
+                        : pipedOutputStream;
+                TarArchiveOutputStream tar = new TarArchiveOutputStream(os);
+                archiveWriter.write(tar);
+                tar.close();
+                writerResult.complete(null);
+            } catch (IOException | RuntimeException ex) {
+                // The pipe is deliberately left open so that the reader sees a broken pipe,
+                // rather than the end of a truncated archive, once this thread exits.
+                writerResult.completeExceptionally(ex);
+            }
+        }, "archive-writer-" + containerId);
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        RuntimeException sendException = null;
+        boolean writerFailedFirst = false;
+        try (InputStream is = pipedInputStream;
                 CopyArchiveToContainerCmd copyArchiveToContainerCmd = internalClient
                         .copyArchiveToContainerCmd(containerId)) {
             copyArchiveToContainerCmd.withTarInputStream(is)
                     .withCopyUIDGID(true)
                     .withRemotePath(remoteDirPath).exec();
-
         } catch (RuntimeException ex) {
-            throw handleMissingAPISocketError(ex);
+            sendException = ex;
+            // Checked before waiting for the writer so that only a failure that
+            // happened before the send failed counts as its cause
+            writerFailedFirst = writerResult.isCompletedExceptionally();
+        }
+
+        IOException writeException = null;
+        try {
+            writerResult.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            writeException = new IOException(
+                    "Interrupted whilst writing archive to send to '" + remoteDirPath + "'.", ex);
+        } catch (ExecutionException ex) {
+            writeException = new IOException(
+                    "Failed to write archive to send to '" + remoteDirPath + "'.", ex.getCause());
+        }
+
+        if (null != sendException && writerFailedFirst) {
+            // The send then typically just reports that the archive was truncated
+            writeException.addSuppressed(sendException);
+            throw writeException;
+        } else if (null != sendException) {
+            // Otherwise the Docker API failure is the root cause, the writer then
+            // typically just reports that the pipe was closed under it.
+            RuntimeException handledException = handleContainerError(containerId, sendException);
+            if (null != writeException) {
+                handledException.addSuppressed(writeException);
+            }
+            throw handledException;
+        } else if (null != writeException) {
+            throw writeException;
         }
     }
 
-    private final class FileIterator implements Iterable<Entry<String, byte[]>>, AutoCloseable {
+    private final class FileIterator implements Iterable<Entry<String, Path>>, AutoCloseable {
         Path dirPath;
         private final Stream<Path> stream;
 
@@ -468,16 +641,10 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
         }
 
         @Override
-        public Iterator<Map.Entry<String, byte[]>> iterator() {
-
+        public Iterator<Map.Entry<String, Path>> iterator() {
             return stream.filter(Files::isRegularFile)
-                    .map(path -> {
-                        try {
-                            return Map.entry(dirPath.relativize(path).toString(), Files.readAllBytes(path));
-                        } catch (IOException ex) {
-                            throw new RuntimeException("Failed to read file '" + path + "'", ex);
-                        }
-                    }).iterator();
+                    .map(path -> Map.entry(dirPath.relativize(path).toString(), path))
+                    .iterator();
         }
 
         @Override
@@ -502,7 +669,7 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
 
     public void sendFiles(String containerId, String localDirPath, List<String> filePaths, String remoteDirPath) {
         try (FileIterator fileIterator = new FileIterator(localDirPath, filePaths)) {
-            sendFileEntries(containerId, remoteDirPath, fileIterator);
+            sendFilePaths(containerId, remoteDirPath, fileIterator);
         } catch (Exception ex) {
             throw new RuntimeException("Failed to send the following files to '" + remoteDirPath + "':\n"
                     + filePaths.stream().collect(Collectors.joining("'\n'", "'", "'")), ex);
@@ -511,37 +678,95 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
 
     public void sendFolder(String containerId, String localDirPath, String remoteDirPath) {
         try (FileIterator fileIterator = new FileIterator(localDirPath)) {
-            sendFileEntries(containerId, remoteDirPath, fileIterator);
+            sendFilePaths(containerId, remoteDirPath, fileIterator);
         } catch (Exception ex) {
             throw new RuntimeException("Failed to send files from folder '" + localDirPath
                     + "' to '" + remoteDirPath + "'.", ex);
         }
     }
 
-    public Map<String, byte[]> retrieveFiles(String containerId, String remoteDirPath) throws IOException {
-        Map<String, byte[]> files = new HashMap<>();
+    /**
+     * Receives the content of each file retrieved from a container.
+     */
+    @FunctionalInterface
+    public interface FileContentConsumer {
+        /**
+         * @param filePath the path of the file in the container
+         * @param content  the content of the file, this is only valid until this
+         *                 method returns and closing it has no effect
+         */
+        void accept(String filePath, InputStream content) throws IOException;
+    }
 
-        remoteDirPath = remoteDirPath.replaceFirst("([^/])/*$", "$1/");
+    private static final class EntryInputStream extends FilterInputStream {
+        private EntryInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // The underlying stream is still needed for the following entries
+        }
+    }
+
+    /**
+     * Stream the files in a container directory to a consumer one at a time.
+     */
+    public void retrieveFiles(String containerId, String remoteDirPath, FileContentConsumer consumer)
+            throws IOException {
+        String dirPath = remoteDirPath.replaceFirst("([^/])/*$", "$1/");
 
         try (CopyArchiveFromContainerCmd copyArchiveFromContainerCmd = internalClient
-                .copyArchiveFromContainerCmd(containerId, remoteDirPath);
+                .copyArchiveFromContainerCmd(containerId, dirPath);
                 InputStream is = copyArchiveFromContainerCmd.exec();
                 TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(is)) {
 
+            InputStream entryInputStream = new EntryInputStream(tarArchiveInputStream);
             TarArchiveEntry tarArchiveEntry;
             while (null != (tarArchiveEntry = tarArchiveInputStream.getNextTarEntry())) {
                 if (!tarArchiveEntry.isDirectory()) {
-                    files.put(remoteDirPath + tarArchiveEntry.getName().replaceFirst("^[^/]*/", ""),
-                            tarArchiveInputStream.readAllBytes());
+                    consumer.accept(dirPath + tarArchiveEntry.getName().replaceFirst("^[^/]*/", ""),
+                            entryInputStream);
                 }
             }
         } catch (RuntimeException ex) {
-            throw handleMissingAPISocketError(ex);
-        }
+            throw handleContainerError(containerId, ex);
+        }
+    }
+
+    /**
+     * Copy the files in a container directory directly into a local directory,
+     * keeping their paths relative to the container directory.
+     */
+    public void retrieveFiles(String containerId, String remoteDirPath, Path localDirPath) throws IOException {
+        String dirPath = remoteDirPath.replaceFirst("([^/])/*$", "$1/");
+        Path normalisedLocalDirPath = localDirPath.normalize();
+        retrieveFiles(containerId, dirPath, (filePath, content) -> {
+            Path localFilePath = normalisedLocalDirPath.resolve(filePath.substring(dirPath.length())).normalize();
+            // Guard against archive entries, such as "../file", that would be written
+            // outside of the target directory
+            if (!localFilePath.startsWith(normalisedLocalDirPath)) {
+                throw new IOException("Archive entry '" + filePath + "' retrieved from container '" + containerId
+                        + "' resolves to a path outside of '" + localDirPath + "'.");
+            }
+            Files.createDirectories(localFilePath.getParent());
+            Files.copy(content, localFilePath, StandardCopyOption.REPLACE_EXISTING);
+        });
+    }
+
+    public Map<String, byte[]> retrieveFiles(String containerId, String remoteDirPath) throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        retrieveFiles(containerId, remoteDirPath, (filePath, content) -> files.put(filePath, content.readAllBytes()));
         return files;
     }
 
-    public byte[] retrieveFile(String containerId, String remoteFilePath) throws IOException {
+    /**
+     * Stream a single file from a container to a consumer.
+     *
+     * @return whether the file was found
+     */
+    public boolean retrieveFile(String containerId, String remoteFilePath, FileContentConsumer consumer)
+            throws IOException {
         try (CopyArchiveFromContainerCmd copyArchiveFromContainerCmd = internalClient
                 .copyArchiveFromContainerCmd(containerId, remoteFilePath);
                 InputStream is = copyArchiveFromContainerCmd.exec();
@@ -550,11 +775,30 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
             TarArchiveEntry tarArchiveEntry;
             while (null != (tarArchiveEntry = tarArchiveInputStream.getNextTarEntry())) {
                 if (!tarArchiveEntry.isDirectory()) {
-                    return tarArchiveInputStream.readAllBytes();
+                    consumer.accept(remoteFilePath, new EntryInputStream(tarArchiveInputStream));
+                    return true;
                 }
             }
+        } catch (RuntimeException ex) {
+            throw handleContainerError(containerId, ex);
+        }
+        return false;
+    }
+
+    /**
+     * Copy a single file from a container directly into a local file.
+     */
+    public void retrieveFile(String containerId, String remoteFilePath, Path localFilePath) throws IOException {
+        if (!retrieveFile(containerId, remoteFilePath,
+                (filePath, content) -> Files.copy(content, localFilePath, StandardCopyOption.REPLACE_EXISTING))) {
+            throw new IOException("File '" + remoteFilePath + "' not found in container '" + containerId + "'.");
         }
-        return new byte[0];
+    }
+
+    public byte[] retrieveFile(String containerId, String remoteFilePath) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        retrieveFile(containerId, remoteFilePath, (filePath, content) -> content.transferTo(outputStream));
+        return outputStream.toByteArray();
     }
 
     public Optional<Container> getContainer(String containerName, boolean showAll) {
@@ -598,8 +842,18 @@ public class DockerClient extends BaseClient implements ContainerManager<com.git
     }
 
     public String getContainerId(String containerName) {
-        return getContainer(containerName).map(Container::getId)
-                .orElseThrow(() -> new NoSuchElementException("Cannot get container " + containerName + "."));
+        String containerId = containerIdCache.get(containerName);
+        if (null == containerId) {
+            // Looked up outside of the cache so that the Docker API call doesn't block
+            // other threads from using it
+            containerId = getContainer(containerName).map(Container::getId)
+                    .orElseThrow(() -> new NoSuchElementException("Cannot get container " + containerName + "."));
+            String cachedContainerId = containerIdCache.putIfAbsent(containerName, containerId);
+            if (null != cachedContainerId) {
+                containerId = cachedContainerId;
+            }
+        }
+        return containerId;
     }
 
     private Map<String, List<String>> convertToConfigFilterMap(String configName, Map<String, String> labelMap) {
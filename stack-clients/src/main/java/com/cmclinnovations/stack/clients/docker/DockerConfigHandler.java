@@ -67,6 +67,19 @@ public class DockerConfigHandler {
         }
     }
 
+    public static final void removeEndpointConfig(String endpointName) {
+        try {
+            Files.deleteIfExists(configsDir.resolve(endpointName));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to delete Docker config file with name '" + endpointName + "'.", ex);
+        }
+
+        if (!StackClient.isInTest()) {
+            DockerClient dockerClient = DockerClient.getInstance();
+            dockerClient.getConfig(endpointName).ifPresent(dockerClient::removeConfig);
+        }
+    }
+
     public static final <E extends EndpointConfig> E readEndpointConfig(String endpointName,
             Class<E> endpointConfigClass) {
         Path configFilePath = configsDir.resolve(endpointName);
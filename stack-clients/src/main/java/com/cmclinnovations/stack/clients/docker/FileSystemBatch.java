@@ -0,0 +1,180 @@
+package com.cmclinnovations.stack.clients.docker;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Collects filesystem operations to be run in a container and runs them all in
+ * a single exec command, rather than one exec per operation.
+ */
+public final class FileSystemBatch {
+
+    private static final String RESULT_PREFIX = "@@fs-batch ";
+
+    /**
+     * Maximum size of the script passed to each exec command, kept well under the
+     * 128 KiB that Linux allows for a single argument.
+     */
+    static final int MAX_SCRIPT_BYTES = 64 * 1024;
+
+    public static final class Operation {
+        private final List<String> command;
+        private Long exitCode = null;
+
+        private Operation(String... command) {
+            this.command = List.of(command);
+        }
+
+        public List<String> getCommand() {
+            return command;
+        }
+
+        /**
+         * @return the exit code of the operation
+         * @throws IllegalStateException if the batch has not been executed yet
+         */
+        public long getExitCode() {
+            if (null == exitCode) {
+                throw new IllegalStateException("The operation '" + String.join(" ", command)
+                        + "' has not been executed yet.");
+            }
+            return exitCode;
+        }
+
+        public boolean isSuccessful() {
+            return 0 == getExitCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" ", command) + (null == exitCode ? "" : " -> " + exitCode);
+        }
+    }
+
+    private final DockerClient dockerClient;
+    private final String containerId;
+    private final List<Operation> operations = new ArrayList<>();
+
+    FileSystemBatch(DockerClient dockerClient, String containerId) {
+        this.dockerClient = dockerClient;
+        this.containerId = containerId;
+    }
+
+    private Operation add(String... command) {
+        Operation operation = new Operation(command);
+        operations.add(operation);
+        return operation;
+    }
+
+    public Operation makeDir(String directoryPath) {
+        return add("mkdir", "-p", directoryPath);
+    }
+
+    public Operation fileExists(String filePath) {
+        return add("test", "-f", filePath);
+    }
+
+    public Operation directoryExists(String directoryPath) {
+        return add("test", "-d", directoryPath);
+    }
+
+    public Operation changePermissions(String mode, String path, boolean recursive) {
+        return recursive ? add("chmod", "-R", mode, path) : add("chmod", mode, path);
+    }
+
+    public Operation changeOwner(String owner, String path, boolean recursive) {
+        return recursive ? add("chown", "-R", owner, path) : add("chown", owner, path);
+    }
+
+    public Operation deleteFile(String filePath) {
+        return add("rm", filePath);
+    }
+
+    public Operation deleteDirectory(String directoryPath) {
+        return add("rm", "-r", directoryPath);
+    }
+
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Run all of the operations, in the order they were added, in a single exec
+     * command, or a few if the generated script is too long to pass as one
+     * argument. Later operations are run even if earlier ones fail.
+     *
+     * @return the operations, with their exit codes set
+     */
+    public List<Operation> execute() {
+        if (operations.isEmpty()) {
+            return getOperations();
+        }
+
+        StringBuilder script = new StringBuilder();
+        int scriptBytes = 0;
+        int firstIndex = 0;
+        for (int index = 0; index < operations.size(); index++) {
+            String line = operations.get(index).command.stream()
+                    .map(FileSystemBatch::quote)
+                    .collect(Collectors.joining(" "))
+                    + "; echo \"" + RESULT_PREFIX + index + " $?\"\n";
+            int lineBytes = line.getBytes(StandardCharsets.UTF_8).length;
+            if (0 < scriptBytes && scriptBytes + lineBytes > MAX_SCRIPT_BYTES) {
+                executeScript(script.toString(), firstIndex, index);
+                script.setLength(0);
+                scriptBytes = 0;
+                firstIndex = index;
+            }
+            script.append(line);
+            scriptBytes += lineBytes;
+        }
+        executeScript(script.toString(), firstIndex, operations.size());
+
+        return getOperations();
+    }
+
+    private void executeScript(String script, int fromIndex, int toIndex) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+        String execId = dockerClient.createComplexCommand(containerId, "sh", "-c", script)
+                .withOutputStream(outputStream)
+                .withErrorStream(errorStream)
+                .withEvaluationTimeout(300)
+                .exec();
+
+        outputStream.toString().lines()
+                .filter(line -> line.startsWith(RESULT_PREFIX))
+                .map(line -> line.substring(RESULT_PREFIX.length()).split(" "))
+                .forEach(result -> operations.get(Integer.parseInt(result[0])).exitCode = Long.parseLong(result[1]));
+
+        List<Operation> notRun = operations.subList(fromIndex, toIndex).stream()
+                .filter(operation -> null == operation.exitCode)
+                .collect(Collectors.toList());
+        if (!notRun.isEmpty()) {
+            throw new RuntimeException("Batched filesystem command returned '"
+                    + dockerClient.getCommandErrorCode(execId) + "' before running the following operations "
+                    + notRun + " and wrote the following to stderr:\n" + errorStream.toString());
+        }
+    }
+
+    /**
+     * Run all of the operations and throw an exception if any of them failed.
+     */
+    public void executeOrThrow() {
+        List<Operation> failed = execute().stream()
+                .filter(operation -> !operation.isSuccessful())
+                .collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            throw new RuntimeException("The following batched filesystem operations failed: "
+                    + failed);
+        }
+    }
+
+    private static String quote(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+}
@@ -5,18 +5,27 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import com.cmclinnovations.stack.clients.core.EndpointNames;
 import com.cmclinnovations.stack.clients.core.StackClient;
 import com.cmclinnovations.stack.clients.docker.ContainerClient;
+import com.cmclinnovations.stack.clients.docker.FileSystemBatch;
 import com.cmclinnovations.stack.clients.geoserver.GeoServerClient;
 import com.cmclinnovations.stack.clients.geoserver.MultidimSettings;
 import com.cmclinnovations.stack.clients.geoserver.TimeOptions;
@@ -54,11 +64,27 @@ public class GDALClient extends ContainerClient {
 
     private static final Logger logger = LoggerFactory.getLogger(GDALClient.class);
 
+    /**
+     * Name of the environment variable that sets the maximum number of
+     * independent GDAL commands that are run at the same time.
+     */
+    public static final String GDAL_CONCURRENCY_KEY = "GDAL_CONCURRENCY";
+
+    /**
+     * Name of the environment variable that sets the maximum number of raster
+     * files that are loaded into PostGIS at the same time.
+     */
+    public static final String RASTER_LOAD_CONCURRENCY_KEY = "RASTER_LOAD_CONCURRENCY";
+
     private final PostGISEndpointConfig postgreSQLEndpoint;
 
+    private final int concurrency;
+
+    private final int rasterLoadConcurrency;
+
     private static GDALClient instance = null;
 
-    public static GDALClient getInstance() {
+    public static synchronized GDALClient getInstance() {
         if (null == instance) {
             instance = new GDALClient();
         }
@@ -67,6 +93,16 @@ public class GDALClient extends ContainerClient {
 
     private GDALClient() {
         postgreSQLEndpoint = readEndpointConfig(EndpointNames.POSTGIS, PostGISEndpointConfig.class);
+        concurrency = StackClient.getIntegerSetting(GDAL_CONCURRENCY_KEY, 1);
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("The value of '" + GDAL_CONCURRENCY_KEY
+                    + "' must be at least 1, '" + concurrency + "' provided.");
+        }
+        rasterLoadConcurrency = StackClient.getIntegerSetting(RASTER_LOAD_CONCURRENCY_KEY, 2);
+        if (rasterLoadConcurrency < 1) {
+            throw new IllegalArgumentException("The value of '" + RASTER_LOAD_CONCURRENCY_KEY
+                    + "' must be at least 1, '" + rasterLoadConcurrency + "' provided.");
+        }
     }
 
     private String computePGSQLSourceString(String database) {
@@ -99,6 +135,7 @@ public class GDALClient extends ContainerClient {
             tmpDir.copyFrom(Path.of(dirPath));
             String gdalContainerId = getContainerId(GDAL);
             Multimap<String, String> foundGeoFiles = findGeoFiles(gdalContainerId, tmpDir.toString());
+            List<String> filePaths = new ArrayList<>();
             for (var entry : foundGeoFiles.asMap().entrySet()) {
                 Collection<String> filesOfType = entry.getValue();
                 switch (entry.getKey()) {
@@ -126,15 +163,32 @@ public class GDALClient extends ContainerClient {
                         break;
                 }
 
-                for (String filePath : filesOfType) {
-                    uploadVectorToPostGIS(database, schema, layerName, filePath, options, append);
-                    // If inserting multiple sources into a single layer then ensure subsequent
-                    // files are appended.
-                    if (null != layerName) {
-                        append = true;
-                    }
+                filePaths.addAll(filesOfType);
+            }
+
+            // The commands are generated up front as doing so can copy files referenced in
+            // the options into the scratch directory
+            options.setSchema(schema);
+            List<String[]> commands = new ArrayList<>(filePaths.size());
+            for (String filePath : filePaths) {
+                commands.add(options.generateCommand(layerName, append, filePath,
+                        computePGSQLSourceString(database)));
+                // If inserting multiple sources into a single layer then ensure subsequent
+                // files are appended.
+                if (null != layerName) {
+                    append = true;
                 }
             }
+
+            if (null != layerName && !commands.isEmpty()) {
+                // The first file creates (or truncates) the table so it has to be loaded
+                // before any of the others can be appended to it
+                runOgr2Ogr(gdalContainerId, commands.remove(0), options.getEnv());
+            }
+            runConcurrently(commands.stream()
+                    .<Runnable>map(command -> () -> runOgr2Ogr(gdalContainerId, command, options.getEnv()))
+                    .collect(Collectors.toList()),
+                    "upload vector files from '" + dirPath + "' to PostGIS");
         }
     }
 
@@ -160,22 +214,69 @@ public class GDALClient extends ContainerClient {
 
         options.setSchema(schema);
 
-        String containerId = getContainerId(GDAL);
+        runOgr2Ogr(getContainerId(GDAL), options.generateCommand(
+                layerName, append,
+                filePath, computePGSQLSourceString(database)),
+                options.getEnv());
+    }
 
+    private void runOgr2Ogr(String containerId, String[] command, Map<String, String> envVars) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
 
-        String execId = createComplexCommand(containerId, options.generateCommand(
-                layerName, append,
-                filePath, computePGSQLSourceString(database)))
+        String execId = createComplexCommand(containerId, command)
                 .withOutputStream(outputStream)
                 .withErrorStream(errorStream)
-                .withEnvVars(options.getEnv())
+                .withEnvVars(envVars)
                 .withEvaluationTimeout(300)
                 .exec();
         handleErrors(errorStream, execId, logger);
     }
 
+    /**
+     * Run independent GDAL commands, up to the configured number at the same time.
+     * When only one command can be run at a time they are run in order and the
+     * first failure is thrown straight away, otherwise all of the commands are run
+     * and the failures are reported together once they have finished.
+     */
+    private void runConcurrently(List<Runnable> tasks, String description) {
+        runConcurrently(tasks, concurrency, description);
+    }
+
+    private void runConcurrently(List<Runnable> tasks, int maxThreads, String description) {
+        int nThreads = Math.min(maxThreads, tasks.size());
+        if (nThreads <= 1) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<CompletableFuture<Void>> futures = tasks.stream()
+                    .map(task -> CompletableFuture.runAsync(task, executor))
+                    .collect(Collectors.toList());
+
+            List<Throwable> failures = new ArrayList<>();
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException ex) {
+                    logger.error("Failed to {}.", description, ex.getCause());
+                    failures.add(ex.getCause());
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                RuntimeException exception = new RuntimeException("Failed to " + description + ", "
+                        + failures.size() + " of " + tasks.size() + " commands failed.");
+                failures.forEach(exception::addSuppressed);
+                throw exception;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private String excelToCSV(String filePath) {
         String containerId = getContainerId(GDAL);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -314,19 +415,20 @@ public class GDALClient extends ContainerClient {
     }
 
     private List<String> multipleGeoTiffRastersFromMultiDim(MultidimSettings mdimSettings, String filePath,
-            Path outputDirectory, String layerName, JSONArray timeArray) {
+            Path outputDirectory, String layerName, JSONArray timeArray, int blockSize) {
 
         String variableArrayName = mdimSettings.getLayerArrayName();
         String dateTimeFormat = mdimSettings.getTimeOptions().getFormat();
 
         String gdalContainerId = getContainerId(GDAL);
 
-        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
-
         List<String> filenames = new ArrayList<>(timeArray.length());
+        List<Runnable> warps = new ArrayList<>(timeArray.length());
 
         String inputRasterFilePath = "NETCDF:" + filePath + ":" + variableArrayName;
 
+        // GeoServer reads the time of each GeoTIFF from its filename so they always
+        // contain a single band
         for (int index = 0; index < timeArray.length(); index++) {
 
             String filename;
@@ -338,21 +440,23 @@ public class GDALClient extends ContainerClient {
             filenames.add(filename);
             String outputRasterFilePath = outputDirectory.resolve(filename).toString();
 
-            String execId = createComplexCommand(gdalContainerId, "gdalwarp",
-                    "-srcband", Integer.toString(index + 1),
+            warps.add(createBandWarp(gdalContainerId, filePath, index + 1, 1, timeArray.length(),
+                    "gdalwarp", "-srcband", Integer.toString(index + 1),
                     "-t_srs", "EPSG:4326",
                     "-r", "cubicspline",
                     "-wo", "OPTIMIZE_SIZE=YES",
                     "-multi",
                     "-wo", "NUM_THREADS=ALL_CPUS",
+                    // Tiled and compressed, with internal overviews, so that GeoServer
+                    // doesn't have to read the full resolution data at low zoom levels
+                    "-of", "COG",
+                    "-co", "BLOCKSIZE=" + blockSize,
                     inputRasterFilePath,
-                    outputRasterFilePath)
-                    .withErrorStream(errorStream)
-                    .exec();
-            handleErrors(errorStream, execId, logger);
-            errorStream.reset();
+                    outputRasterFilePath));
         }
 
+        runConcurrently(warps, "convert the bands of '" + filePath + "' to GeoTIFFs");
+
         return filenames;
     }
 
@@ -444,9 +548,14 @@ public class GDALClient extends ContainerClient {
             String layerName, TempDir tempDir, GDALOptions<?> options, MultidimSettings mdimSettings) {
 
         Multimap<String, String> foundRasterFiles = findGeoFiles(gdalContainerId, tempDir.toString());
-        Set<Path> createdDirectories = new HashSet<>();
         List<String> postgresFiles = new ArrayList<>();
 
+        // Create all of the output directories up front in a single exec
+        Set<Path> createdDirectories = new LinkedHashSet<>();
+        foundRasterFiles.forEach((inputFormat, filePath) -> createdDirectories.addAll(getOutputDirectories(
+                inputFormat, filePath, databaseName, schemaName, layerName, tempDir)));
+        changeDirectoryPermissions(gdalContainerId, createdDirectories, true);
+
         for (Map.Entry<String, Collection<String>> fileTypeEntry : foundRasterFiles.asMap().entrySet()) {
             String inputFormat = fileTypeEntry.getKey();
             for (String filePath : fileTypeEntry.getValue()) {
@@ -456,42 +565,55 @@ public class GDALClient extends ContainerClient {
                 }
 
                 postgresFiles.addAll(processFile(gdalContainerId, inputFormat, filePath, databaseName, schemaName,
-                        layerName, tempDir, options, mdimSettings, createdDirectories));
+                        layerName, tempDir, options, mdimSettings));
             }
         }
-        createdDirectories.forEach(
-                directoryPath -> executeSimpleCommand(gdalContainerId, "chmod", "-R", "777", directoryPath.toString()));
+        changeDirectoryPermissions(gdalContainerId, createdDirectories, false);
         return postgresFiles;
     }
 
+    private void changeDirectoryPermissions(String gdalContainerId, Collection<Path> directoryPaths,
+            boolean create) {
+        FileSystemBatch batch = createFileSystemBatch(gdalContainerId);
+        for (Path directoryPath : directoryPaths) {
+            if (create) {
+                batch.makeDir(directoryPath.toString());
+            }
+            batch.changePermissions("777", directoryPath.toString(), true);
+        }
+        batch.execute().stream()
+                .filter(operation -> !operation.isSuccessful())
+                .forEach(operation -> logger.warn("Filesystem operation failed in GDAL container: {}", operation));
+    }
+
+    private List<Path> getOutputDirectories(String inputFormat, String filePath, String databaseName,
+            String schemaName, String layerName, TempDir tempDir) {
+        List<Path> directoryPaths = new ArrayList<>();
+        directoryPaths.add(Paths.get(generateOutFilePath(tempDir.toString(), databaseName, schemaName, layerName,
+                filePath, "geotiffs")).getParent());
+        if (inputFormat.equals("netCDF")) {
+            directoryPaths.add(Paths.get(generateOutFilePath(tempDir.toString(), databaseName, schemaName, layerName,
+                    filePath, "multidim_geospatial")).getParent());
+        }
+        return directoryPaths;
+    }
+
     private Collection<String> processFile(String gdalContainerId, String inputFormat, String filePath,
             String databaseName, String schemaName, String layerName, TempDir tempDir,
-            GDALOptions<?> options, MultidimSettings mdimSettings, Set<Path> createdDirectories) {
+            GDALOptions<?> options, MultidimSettings mdimSettings) {
 
         String postgresOutputPath;
         String geotiffsOutputPath = generateOutFilePath(tempDir.toString(), databaseName, schemaName, layerName,
                 filePath, "geotiffs");
         Path geotiffsOutputDirectory = Paths.get(geotiffsOutputPath).getParent();
 
-        List<Path> directoryPaths = new ArrayList<>();
-        directoryPaths.add(geotiffsOutputDirectory);
-
         if (inputFormat.equals("netCDF")) {
             postgresOutputPath = generateOutFilePath(tempDir.toString(), databaseName, schemaName, layerName,
                     filePath, "multidim_geospatial");
-            Path directoryPath = Paths.get(postgresOutputPath).getParent();
-            directoryPaths.add(directoryPath);
         } else {
             postgresOutputPath = geotiffsOutputPath;
         }
 
-        for (Path dirPath : directoryPaths) {
-            if (createdDirectories.add(dirPath)) {
-                makeDir(gdalContainerId, dirPath.toString());
-                executeSimpleCommand(gdalContainerId, "chmod", "-R", "777", dirPath.toString());
-            }
-        }
-
         Collection<String> postgresOutputPaths;
         if (inputFormat.equals("netCDF")) {
             logger.info("netCDF found, uploading without translate and creating gdal virtual format .vrt file");
@@ -501,7 +623,7 @@ public class GDALClient extends ContainerClient {
             JSONArray timeArray = getTimeFromGdalmdiminfo(timeArrayName, filePath);
 
             List<String> geoTiffFilenames = multipleGeoTiffRastersFromMultiDim(mdimSettings, filePath,
-                    geotiffsOutputDirectory, layerName, timeArray);
+                    geotiffsOutputDirectory, layerName, timeArray, options.getBlockSize());
 
             Map<String, Integer> postgresOutputPathsAndNBands = multipleVrtRastersFromMultiDim(gdalContainerId,
                     mdimSettings, postgresOutputPath,
@@ -550,32 +672,64 @@ public class GDALClient extends ContainerClient {
     private Map<String, Integer> multipleVrtRastersFromMultiDim(String gdalContainerId, MultidimSettings mdimSettings,
             String postgresOutputPath, List<String> geoTiffFilenames) {
         Map<String, Integer> postgresOutputPathsAndNBands = new LinkedHashMap<>();
+        List<Runnable> warps = new ArrayList<>();
 
-        String execId;
         String inputRasterFilePath = "NETCDF:" + postgresOutputPath + ":" + mdimSettings.getLayerArrayName();
-        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
 
-        for (int index = 0; index < geoTiffFilenames.size(); ++index) {
-            String geoTiffFilename = geoTiffFilenames.get(index);
+        int bandsPerFile = mdimSettings.getBandsPerFile();
+        if (bandsPerFile < 1) {
+            throw new IllegalArgumentException(
+                    "The value of 'bandsPerFile' must be at least 1, '" + bandsPerFile + "' provided.");
+        }
+
+        // Each VRT file holds a chunk of consecutive bands and is named after the
+        // GeoTIFF of its first band
+        for (int index = 0; index < geoTiffFilenames.size(); index += bandsPerFile) {
+            int nBands = Math.min(bandsPerFile, geoTiffFilenames.size() - index);
             String outputRasterFilePath = Paths.get(postgresOutputPath)
-                    .resolveSibling(FileUtils.replaceExtension(geoTiffFilename, "vrt"))
+                    .resolveSibling(FileUtils.replaceExtension(geoTiffFilenames.get(index), "vrt"))
                     .toString();
-            execId = createComplexCommand(gdalContainerId, "gdalwarp",
-                    "-srcband", Integer.toString(index + 1),
+
+            List<String> command = new ArrayList<>();
+            command.add("gdalwarp");
+            for (int band = index + 1; band <= index + nBands; band++) {
+                command.add("-srcband");
+                command.add(Integer.toString(band));
+            }
+            Collections.addAll(command,
                     "-t_srs", "EPSG:4326",
                     "-wo", "OPTIMIZE_SIZE=YES",
                     inputRasterFilePath,
-                    outputRasterFilePath)
-                    .withErrorStream(errorStream)
-                    .exec();
-            handleErrors(errorStream, execId, logger);
-            errorStream.reset();
+                    outputRasterFilePath);
+
+            warps.add(createBandWarp(gdalContainerId, postgresOutputPath, index + 1, nBands,
+                    geoTiffFilenames.size(), command.toArray(new String[0])));
 
-            postgresOutputPathsAndNBands.put(outputRasterFilePath, 1);
+            postgresOutputPathsAndNBands.put(outputRasterFilePath, nBands);
         }
+
+        runConcurrently(warps, "create VRT files for the bands of '" + postgresOutputPath + "'");
+
         return postgresOutputPathsAndNBands;
     }
 
+    private Runnable createBandWarp(String gdalContainerId, String filePath, int firstBand, int nBands,
+            int totalBands, String... command) {
+        String bands = (1 == nBands) ? "band " + firstBand : "bands " + firstBand + "-" + (firstBand + nBands - 1);
+        return () -> {
+            ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+            try {
+                String execId = createComplexCommand(gdalContainerId, command)
+                        .withErrorStream(errorStream)
+                        .exec();
+                handleErrors(errorStream, execId, logger);
+            } catch (RuntimeException ex) {
+                throw new RuntimeException("Failed to warp " + bands + " of '" + filePath + "'.", ex);
+            }
+            logger.info("Warped {} of {} of '{}'.", bands, totalBands, filePath);
+        };
+    }
+
     private void ensurePostGISRasterSupportEnabled(String postGISContainerId, String database) {
         ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
         String execId = createComplexCommand(postGISContainerId,
@@ -588,19 +742,133 @@ public class GDALClient extends ContainerClient {
         handleErrors(errorStream, execId, logger);
     }
 
+    /**
+     * Load GeoTIFFs into a PostGIS raster table.
+     *
+     * Each file is loaded in its own transaction, which also records it in the
+     * "{layerName}_loaded_files" table, so that if the load fails part way
+     * through running it again only loads the files that are missing. The files
+     * are loaded concurrently and the constraints, index and statistics are only
+     * created once all of them have been loaded, at which point the record of the
+     * loaded files is removed.
+     */
     private void uploadRasters(String postGISContainerId, String database, String schemaName, String layerName,
             List<String> geotiffFiles, boolean append) {
 
+        if (geotiffFiles.isEmpty()) {
+            logger.warn("No raster files to load into layer '{}'.", layerName);
+            return;
+        }
+
+        String tableName = quoteIdentifier(schemaName) + "." + quoteIdentifier(layerName);
+        String progressTableName = quoteIdentifier(schemaName) + "." + quoteIdentifier(layerName + "_loaded_files");
+
+        ensureRaster2pgsqlInstalled(postGISContainerId);
+
+        List<String> remainingFiles = new ArrayList<>(geotiffFiles);
+        boolean tableExists;
+        try (Connection conn = PostGISClient.getInstance().getConnection(database);
+                Statement stmt = conn.createStatement()) {
+            Set<String> loadedFiles = new LinkedHashSet<>();
+            if (exists(stmt, progressTableName)) {
+                try (ResultSet resultSet = stmt.executeQuery("SELECT file FROM " + progressTableName)) {
+                    while (resultSet.next()) {
+                        loadedFiles.add(resultSet.getString(1));
+                    }
+                }
+            }
+
+            if (!loadedFiles.isEmpty() && geotiffFiles.containsAll(loadedFiles)) {
+                logger.info("Resuming the load of raster layer '{}', {} of {} file(s) have already been loaded.",
+                        layerName, loadedFiles.size(), geotiffFiles.size());
+                remainingFiles.removeAll(loadedFiles);
+            } else {
+                if (!append) {
+                    stmt.executeUpdate("DROP TABLE IF EXISTS " + tableName);
+                }
+                stmt.executeUpdate("DROP TABLE IF EXISTS " + progressTableName
+                        + "; CREATE TABLE " + progressTableName + " (file text PRIMARY KEY)");
+            }
+
+            tableExists = exists(stmt, tableName);
+            if (tableExists) {
+                // Allow rasters with a different extent etc. to be added, the constraints
+                // are added back once all of the files have been loaded
+                executeRasterFunction(conn, "DropRasterConstraints", schemaName, layerName);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to prepare raster table " + tableName + " in database '" + database
+                    + "'.", ex);
+        }
+
+        if (!remainingFiles.isEmpty()) {
+            if (!tableExists) {
+                runRasterLoad(postGISContainerId, database, "raster2pgsql -p -t auto -R -F -q "
+                        + shellQuote(remainingFiles.get(0)) + " " + shellQuote(tableName));
+            }
+
+            // The tile size chosen for the first file is used for all of them so that the
+            // tiles have the same size, as they do when all of the files are loaded by a
+            // single raster2pgsql command
+            String tileSize = getTileSize(database, tableName);
+            if (null == tileSize) {
+                loadRasterFile(postGISContainerId, database, tableName, progressTableName,
+                        remainingFiles.remove(0), "auto");
+                tileSize = getTileSize(database, tableName);
+            }
+
+            String finalTileSize = null == tileSize ? "auto" : tileSize;
+            runConcurrently(remainingFiles.stream()
+                    .<Runnable>map(file -> () -> loadRasterFile(postGISContainerId, database, tableName,
+                            progressTableName, file, finalTileSize))
+                    .collect(Collectors.toList()), rasterLoadConcurrency,
+                    "load rasters into " + tableName + " (loaded files will be skipped if the upload is rerun)");
+        }
+
+        try (Connection conn = PostGISClient.getInstance().getConnection(database);
+                Statement stmt = conn.createStatement()) {
+            executeRasterFunction(conn, "AddRasterConstraints", schemaName, layerName);
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + quoteIdentifier(layerName + "_st_convexhull_idx")
+                    + " ON " + tableName + " USING gist (ST_ConvexHull(rast))");
+            stmt.executeUpdate("VACUUM ANALYZE " + tableName);
+            stmt.executeUpdate("DROP TABLE IF EXISTS " + progressTableName);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to add the constraints and index to raster table " + tableName
+                    + " in database '" + database + "'.", ex);
+        }
+        logger.info("Loaded {} raster file(s) into {}.", geotiffFiles.size(), tableName);
+    }
+
+    private void ensureRaster2pgsqlInstalled(String postGISContainerId) {
+        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+        String execId = createComplexCommand(postGISContainerId, "bash", "-c",
+                "(which raster2pgsql || (apt update && apt install -y postgis && rm -rf /var/lib/apt/lists/*))")
+                .withErrorStream(errorStream)
+                .withEvaluationTimeout(3600)
+                .exec();
+        handleErrors(errorStream, execId, logger);
+    }
+
+    private void loadRasterFile(String postGISContainerId, String database, String tableName,
+            String progressTableName, String file, String tileSize) {
+        String recordLoaded = "INSERT INTO " + progressTableName + " (file) VALUES ('" + file.replace("'", "''")
+                + "');";
+        // https://postgis.net/docs/using_raster_dataman.html#RT_Raster_Loader
+        // The tiles and the record of the file are committed together, if
+        // raster2pgsql fails the transaction is not committed
+        runRasterLoad(postGISContainerId, database, "{ echo 'BEGIN;' && raster2pgsql -a -t " + tileSize
+                + " -R -F -q -Y -e " + shellQuote(file) + " " + shellQuote(tableName)
+                + " && echo " + shellQuote(recordLoaded) + " && echo 'COMMIT;'; }");
+        logger.info("Loaded raster file '{}' into {}.", file, tableName);
+    }
+
+    private void runRasterLoad(String postGISContainerId, String database, String raster2pgsqlCommand) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
-        String mode = append ? "-a" : "-d";
         String execId = createComplexCommand(postGISContainerId, "bash", "-c",
-                "(which raster2pgsql || (apt update && apt install -y postgis && rm -rf /var/lib/apt/lists/*)) && " +
-                // https://postgis.net/docs/using_raster_dataman.html#RT_Raster_Loader
-                        "raster2pgsql " + mode + " -C -t auto -R -F -q -I -M -Y"
-                        + geotiffFiles.stream().collect(Collectors.joining("' '", " '", "' "))
-                        + "\"" + schemaName + "\".\"" + layerName + "\""
-                        + " | psql -U " + postgreSQLEndpoint.getUsername() + " -d " + database + " -w")
+                "set -o pipefail; " + raster2pgsqlCommand
+                        + " | psql -U " + postgreSQLEndpoint.getUsername() + " -d " + database
+                        + " -w -q -v ON_ERROR_STOP=1")
                 .withOutputStream(outputStream)
                 .withErrorStream(errorStream)
                 .withEvaluationTimeout(3600)
@@ -609,6 +877,46 @@ public class GDALClient extends ContainerClient {
         handleErrors(errorStream, execId, logger);
     }
 
+    /**
+     * @return the size of the first tile in the table, as "{width}x{height}", or
+     *         null if the table is empty
+     */
+    private String getTileSize(String database, String tableName) {
+        try (Connection conn = PostGISClient.getInstance().getConnection(database);
+                Statement stmt = conn.createStatement();
+                ResultSet resultSet = stmt.executeQuery("SELECT ST_Width(rast), ST_Height(rast) FROM " + tableName
+                        + " ORDER BY rid LIMIT 1")) {
+            return resultSet.next() ? resultSet.getInt(1) + "x" + resultSet.getInt(2) : null;
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to read the tile size of raster table " + tableName
+                    + " in database '" + database + "'.", ex);
+        }
+    }
+
+    private static boolean exists(Statement stmt, String tableName) throws SQLException {
+        try (ResultSet resultSet = stmt.executeQuery("SELECT to_regclass('" + tableName.replace("'", "''")
+                + "') IS NOT NULL")) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+
+    private static void executeRasterFunction(Connection conn, String function, String schemaName,
+            String layerName) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT " + function + "(?, ?, 'rast')")) {
+            stmt.setString(1, schemaName);
+            stmt.setString(2, layerName);
+            stmt.execute();
+        }
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
     // add .tif extension on files in geotiffs directory
 
     // return filePath for any file to either "geotiffs" or "multidim_geospatial"
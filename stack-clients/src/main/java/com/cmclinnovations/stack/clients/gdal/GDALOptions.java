@@ -5,10 +5,19 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public abstract class GDALOptions<T extends GDALOptions<T>> extends CommonOptions<T> {
 
+    /**
+     * Default width and height, in pixels, of the internal tiles of the COG files,
+     * this matches the default of the COG driver.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 512;
+
+    private static final String BLOCK_SIZE_CREATION_OPTION = "BLOCKSIZE";
+
     @JsonProperty
     protected final Map<String, String> creationOptions = new LinkedHashMap<>();
 
@@ -21,6 +30,24 @@ public abstract class GDALOptions<T extends GDALOptions<T>> extends CommonOption
         return (T) this;
     }
 
+    /**
+     * @return the width and height, in pixels, of the internal tiles of the COG
+     *         files, as set by the "BLOCKSIZE" creation option
+     */
+    @JsonIgnore
+    public final int getBlockSize() {
+        String blockSize = creationOptions.get(BLOCK_SIZE_CREATION_OPTION);
+        if (null == blockSize) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+        try {
+            return Integer.parseInt(blockSize.strip());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("The '" + BLOCK_SIZE_CREATION_OPTION
+                    + "' creation option must be an integer, '" + blockSize + "' provided.", ex);
+        }
+    }
+
     public final String[] generateCommand(String sourceFormat, String source, String destination,
             String... extraArgs) {
 
@@ -49,7 +49,7 @@ public class GeoServerClient extends ClientWithEndpoint<RESTEndpointConfig> {
     private static final String GEOSERVER_RASTER_INDEX_DATABASE_SUFFIX = "_geoserver_indices";
     private static final String DIM_PREFIX = "dim_";
 
-    public static GeoServerClient getInstance() {
+    public static synchronized GeoServerClient getInstance() {
         if (null == instance) {
             instance = new GeoServerClient();
         }
@@ -292,6 +292,9 @@ public class GeoServerClient extends ClientWithEndpoint<RESTEndpointConfig> {
                     }
                 }
 
+                // All of the granules are GeoTIFFs so there is no need to try each format
+                indexerProperties += "\nSuggestedFormat=org.geotools.gce.geotiff.GeoTiffFormat"
+                        + "\nSuggestedSPI=it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReaderSpi";
                 files.put("indexer.properties",
                         indexerProperties.getBytes());
 
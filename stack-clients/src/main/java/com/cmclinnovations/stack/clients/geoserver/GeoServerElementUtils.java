@@ -1,5 +1,7 @@
 package com.cmclinnovations.stack.clients.geoserver;
 
+import org.jdom.filter.ElementFilter;
+
 import it.geosolutions.geoserver.rest.encoder.utils.ElementUtils;
 import it.geosolutions.geoserver.rest.encoder.utils.XmlElement;
 
@@ -7,4 +9,14 @@ abstract class GeoServerElementUtils extends ElementUtils {
     public static boolean nodeIsSet(XmlElement element, String nodeName) {
         return ElementUtils.contains(element.getRoot(), nodeName, 1) != null;
     }
+
+    /**
+     * Parameters, such as those of a coverage store, are written as "entry"
+     * elements whose first "string" child is the name of the parameter.
+     */
+    public static boolean parameterIsSet(XmlElement element, String parameterName) {
+        return ElementUtils.search(element.getRoot(), new ElementFilter("entry")).stream()
+                .map(entry -> entry.getChild("string"))
+                .anyMatch(name -> null != name && parameterName.equals(name.getTextTrim()));
+    }
 }
@@ -8,6 +8,8 @@ import it.geosolutions.geoserver.rest.encoder.coverage.GSImageMosaicEncoder;
 
 public class GeoServerRasterSettings implements GeoServerDimensionSettings {
 
+    private static final String SUGGESTED_TILE_SIZE = "SUGGESTED_TILE_SIZE";
+
     private final GSImageMosaicEncoder dataStoreSettings = new GSImageMosaicEncoder();
     private final GSLayerEncoder21 layerSettings = new GSLayerEncoder21();
 
@@ -15,6 +17,16 @@ public class GeoServerRasterSettings implements GeoServerDimensionSettings {
         return dataStoreSettings;
     }
 
+    /**
+     * Set the size of the tiles that GeoServer reads from each granule, unless a
+     * size has already been specified in the data store settings.
+     */
+    public void setDefaultSuggestedTileSize(String tileSize) {
+        if (!GeoServerElementUtils.parameterIsSet(dataStoreSettings, SUGGESTED_TILE_SIZE)) {
+            dataStoreSettings.setSUGGESTED_TILE_SIZE(tileSize);
+        }
+    }
+
     public GSLayerEncoder getLayerSettings() {
         return layerSettings;
     }
@@ -3,6 +3,7 @@ package com.cmclinnovations.stack.clients.geoserver;
 public class MultidimSettings {
     private String layerArrayName;
     private TimeOptions timeOptions;
+    private int bandsPerFile = 1;
 
     public String getLayerArrayName() {
         return layerArrayName;
@@ -11,4 +12,8 @@ public class MultidimSettings {
     public TimeOptions getTimeOptions() {
         return timeOptions;
     }
+
+    public int getBandsPerFile() {
+        return bandsPerFile;
+    }
 }
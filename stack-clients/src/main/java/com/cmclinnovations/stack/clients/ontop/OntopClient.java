@@ -2,23 +2,30 @@ package com.cmclinnovations.stack.clients.ontop;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.ConstructQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.cmclinnovations.stack.clients.blazegraph.BlazegraphClient;
 import com.cmclinnovations.stack.clients.core.ClientWithEndpoint;
+import com.cmclinnovations.stack.clients.core.EndpointNames;
+import com.cmclinnovations.stack.clients.core.StackClient;
 import com.cmclinnovations.stack.clients.core.datasets.CopyDatasetQuery;
+import com.cmclinnovations.stack.clients.postgis.PostGISClient;
 import com.cmclinnovations.stack.clients.utils.JsonHelper;
+import com.cmclinnovations.stack.clients.utils.LocalTempFile;
 import com.cmclinnovations.stack.clients.utils.SparqlRulesFile;
 import com.cmclinnovations.stack.clients.utils.TempFile;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -35,7 +42,20 @@ public class OntopClient extends ClientWithEndpoint<OntopEndpointConfig> {
     public static final String ONTOP_SPARQL_RULES_FILE = "ONTOP_SPARQL_RULES_FILE";
     public static final String ONTOP_LENSES_FILE = "ONTOP_LENSES_FILE";
 
-    private static Map<String, OntopClient> instances = new HashMap<>();
+    /**
+     * Name of the environment variable that enables serving all of the datasets
+     * that use the same database from a single shared Ontop container, rather than
+     * starting one for each dataset.
+     */
+    public static final String SHARED_ONTOP_KEY = "ONTOP_SHARED";
+
+    private static final String SHARED_ONTOP_INFIX = "-shared-";
+
+    private static final Map<String, OntopClient> instances = new ConcurrentHashMap<>();
+
+    // The mappings last written to the container's mapping file
+    private SQLPPMappingImplementation cachedMapping = null;
+    private String cachedMappingContainerId = null;
 
     public static OntopClient getInstance(String containerName) {
         return instances.computeIfAbsent(containerName, OntopClient::new);
@@ -45,39 +65,103 @@ public class OntopClient extends ClientWithEndpoint<OntopEndpointConfig> {
         super(containerName, OntopEndpointConfig.class);
     }
 
+    public static boolean isSharedModeEnabled() {
+        return StackClient.getBooleanSetting(SHARED_ONTOP_KEY, false);
+    }
+
+    /**
+     * @return the name of the shared Ontop container that serves the datasets
+     *         that use the given database, for the default database this is the
+     *         default Ontop container
+     */
+    public static String getSharedOntopName(String databaseName) {
+        return PostGISClient.DEFAULT_DATABASE_NAME.equals(databaseName)
+                ? EndpointNames.ONTOP
+                : EndpointNames.ONTOP + SHARED_ONTOP_INFIX + databaseName;
+    }
+
+    /**
+     * Write an endpoint config, with the given name, that points to this
+     * container so that clients of a dataset served by a shared container can
+     * find it.
+     */
+    public void writeAliasEndpointConfig(String alias) {
+        OntopEndpointConfig endpointConfig = readEndpointConfig();
+        writeEndpointConfig(new OntopEndpointConfig(alias, endpointConfig.getHostName(), endpointConfig.getPort()));
+    }
+
+    /**
+     * Remove an endpoint config written by {@link #writeAliasEndpointConfig}.
+     */
+    public void removeAliasEndpointConfig(String alias) {
+        removeEndpointConfig(alias);
+    }
+
     public void uploadOntology(String catalogNamespace, List<String> ontologyDatasets) {
+        uploadOntology(catalogNamespace, ontologyDatasets, false);
+    }
+
+    /**
+     * @param append add to the ontology that is already in the container, rather
+     *               than replacing it, as a shared container serves several
+     *               datasets
+     */
+    public synchronized void uploadOntology(String catalogNamespace, List<String> ontologyDatasets, boolean append) {
         ConstructQuery query = CopyDatasetQuery.getConstructQuery(ontologyDatasets);
 
         Model model = BlazegraphClient.getInstance().getRemoteStoreClient(catalogNamespace)
                 .executeConstruct(query.getQueryString());
 
+        if (append) {
+            readExistingFile(ONTOP_ONTOLOGY_FILE,
+                    ontologyFile -> RDFDataMgr.read(model, ontologyFile.toString(), Lang.TURTLE));
+        }
+
         writeTurtleToFile(model);
     }
 
     public void updateOBDA(Path newMappingFilePath) {
+        updateOBDA(null == newMappingFilePath ? List.of() : List.of(newMappingFilePath));
+    }
+
+    /**
+     * Add the mappings from several files to the container's mapping file, which
+     * is only written once. The mappings already in the container are cached so
+     * that they are only retrieved and parsed the first time that this is called
+     * for the container. If no files are passed the mapping file is only created
+     * if it doesn't already exist.
+     */
+    public void updateOBDA(Collection<Path> newMappingFilePaths) {
+        updateOBDA(newMappingFilePaths, null);
+    }
+
+    /**
+     * Replace the mappings whose IDs start with the given prefix with the ones
+     * from the files, the prefix is added to the IDs of the new mappings. This
+     * keeps the mappings of datasets that share a container separate.
+     * 
+     * @param idPrefix prefix for the mapping IDs, or null to add the mappings
+     *                 as they are
+     */
+    public synchronized void updateOBDA(Collection<Path> newMappingFilePaths, String idPrefix) {
         String containerId = getContainerId(getContainerName());
         Path ontopMappingFilePath = getFilePath(containerId, ONTOP_MAPPING_FILE);
 
         try {
-            SQLPPMappingImplementation mapping = new SQLPPMappingImplementation();
-
-            if (fileExists(containerId, ontopMappingFilePath.toString())) {
+            SQLPPMappingImplementation currentMapping = getCurrentMapping(containerId, ontopMappingFilePath);
 
-                if (null == newMappingFilePath) {
-                    // A mapping file already exists and no new one has been passed to be added.
-                    return;
-                }
-                try (TempFile localTempOntopMappingFilePath = SQLPPMappingImplementation
-                        .createTempOBDAFile(ontopMappingFilePath);
-                        OutputStream outputStream = Files.newOutputStream(localTempOntopMappingFilePath.getPath())) {
-                    outputStream.write(retrieveFile(containerId, ontopMappingFilePath.toString()));
-                    mapping.addMappings(localTempOntopMappingFilePath.getPath());
-                }
+            if (null != currentMapping && newMappingFilePaths.isEmpty() && null == idPrefix) {
+                // A mapping file already exists and no new ones have been passed to be added.
+                return;
             }
+            SQLPPMappingImplementation mapping = (null == currentMapping) ? new SQLPPMappingImplementation()
+                    : currentMapping;
 
-            if (null != newMappingFilePath) {
-                mapping.addMappings(newMappingFilePath);
+            if (null != idPrefix) {
+                mapping.removeMappings(idPrefix);
             }
+            newMappingFilePaths.forEach(newMappingFilePath -> mapping.addMappings(newMappingFilePath, idPrefix));
+
             try (TempFile localTempOntopMappingFilePath = SQLPPMappingImplementation
                     .createTempOBDAFile(ontopMappingFilePath)) {
                 mapping.serialize(localTempOntopMappingFilePath.getPath());
@@ -85,16 +169,74 @@ public class OntopClient extends ClientWithEndpoint<OntopEndpointConfig> {
                 sendFileContent(containerId, ontopMappingFilePath,
                         Files.readAllBytes(localTempOntopMappingFilePath.getPath()));
             }
+            cachedMapping = mapping;
+            cachedMappingContainerId = containerId;
         } catch (IOException ex) {
+            cachedMapping = null;
             throw new RuntimeException(
                     "Failed to write out combined Ontop mapping file '" + ontopMappingFilePath + "'.", ex);
+        } catch (RuntimeException ex) {
+            // The cached mapping may now contain mappings that are not in the container
+            cachedMapping = null;
+            throw ex;
         }
     }
 
+    /**
+     * Remove the mappings whose IDs start with the given prefix.
+     */
+    public void removeOBDA(String idPrefix) {
+        updateOBDA(List.of(), idPrefix);
+    }
+
+    /**
+     * @return the mappings in the container's mapping file, or null if it doesn't
+     *         have one
+     */
+    private SQLPPMappingImplementation getCurrentMapping(String containerId, Path ontopMappingFilePath)
+            throws IOException {
+        if (!fileExists(containerId, ontopMappingFilePath.toString())) {
+            cachedMapping = null;
+            return null;
+        }
+        if (null != cachedMapping && containerId.equals(cachedMappingContainerId)) {
+            return cachedMapping;
+        }
+
+        SQLPPMappingImplementation mapping = new SQLPPMappingImplementation();
+        try (TempFile localTempOntopMappingFilePath = SQLPPMappingImplementation
+                .createTempOBDAFile(ontopMappingFilePath)) {
+            retrieveFile(containerId, ontopMappingFilePath.toString(),
+                    localTempOntopMappingFilePath.getPath());
+            mapping.addMappings(localTempOntopMappingFilePath.getPath());
+        }
+        return mapping;
+    }
+
     public void uploadRules(List<Path> ruleFiles) {
+        uploadRules(ruleFiles, false);
+    }
+
+    /**
+     * @param append add to the rules that are already in the container, rather
+     *               than replacing them
+     */
+    public synchronized void uploadRules(List<Path> ruleFiles, boolean append) {
         String containerId = getContainerId(getContainerName());
         Path sparqlRulesFilePath = getFilePath(containerId, ONTOP_SPARQL_RULES_FILE);
         SparqlRulesFile sparqlRules = new SparqlRulesFile(ruleFiles);
+        if (append) {
+            SparqlRulesFile combinedRules = new SparqlRulesFile();
+            readExistingFile(ONTOP_SPARQL_RULES_FILE, rulesFile -> {
+                if (rulesFile.toFile().length() != 0) {
+                    combinedRules.addRules(rulesFile);
+                }
+            });
+            // Rules from a dataset that is being reloaded are already there
+            combinedRules.getRules().removeAll(sparqlRules.getRules());
+            combinedRules.addRules(sparqlRules);
+            sparqlRules = combinedRules;
+        }
 
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             sparqlRules.write(outputStream);
@@ -106,6 +248,15 @@ public class OntopClient extends ClientWithEndpoint<OntopEndpointConfig> {
     }
 
     public void uploadLenses(List<Path> lensesFiles) {
+        uploadLenses(lensesFiles, false);
+    }
+
+    /**
+     * @param append add to the lenses that are already in the container, rather
+     *               than replacing them, existing lenses with the same name as a
+     *               new one are replaced
+     */
+    public synchronized void uploadLenses(List<Path> lensesFiles, boolean append) {
         String containerId = getContainerId(getContainerName());
         Path lensesFilePath = getFilePath(containerId, ONTOP_LENSES_FILE);
         List<JsonLens> mergedRelations = new ArrayList<>();
@@ -120,6 +271,26 @@ public class OntopClient extends ClientWithEndpoint<OntopEndpointConfig> {
             }
         }
 
+        if (append) {
+            List<JsonLens> existingRelations = new ArrayList<>();
+            readExistingFile(ONTOP_LENSES_FILE, existingLensesFile -> {
+                try {
+                    if (0 != Files.size(existingLensesFile)) {
+                        existingRelations.addAll(
+                                mapper.readValue(existingLensesFile.toFile(), JsonLenses.class).relations);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read existing lenses from container '"
+                            + getContainerName() + "'.", e);
+                }
+            });
+            existingRelations.removeIf(existing -> mergedRelations.stream()
+                    .anyMatch(relation -> relation.name.equals(existing.name)));
+            existingRelations.addAll(mergedRelations);
+            mergedRelations.clear();
+            mergedRelations.addAll(existingRelations);
+        }
+
         JsonLenses mergedLenses = new JsonLenses(mergedRelations);
 
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
@@ -144,6 +315,26 @@ public class OntopClient extends ClientWithEndpoint<OntopEndpointConfig> {
 
     }
 
+    /**
+     * Copy one of the container's config files into a local temporary file, if it
+     * exists, and pass it to the consumer.
+     */
+    private void readExistingFile(String filenameKey, Consumer<Path> consumer) {
+        String containerId = getContainerId(getContainerName());
+        Path filePath = getFilePath(containerId, filenameKey);
+        if (!fileExists(containerId, filePath.toString())) {
+            return;
+        }
+        try (TempFile localTempFile = new LocalTempFile(
+                Files.createTempFile("ontop", "-" + filePath.getFileName()))) {
+            retrieveFile(containerId, filePath.toString(), localTempFile.getPath());
+            consumer.accept(localTempFile.getPath());
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read '" + filePath + "' from container '" + getContainerName()
+                    + "'.", ex);
+        }
+    }
+
     private Path getFilePath(String containerId, String filenameKey) {
         return getEnvironmentVariable(containerId, filenameKey)
                 .map(Path::of)
@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -37,12 +38,27 @@ final class SQLPPMappingImplementation implements SQLPPMapping {
     private static final Pattern TARGET_LINES_PATTERN = Pattern.compile("([,;\\.])[\\t ]*\\r?\\n+[\\t ]+");
     // Matches two newline characters seperated whitespace
     private static final Pattern WHITESPACE_BETWEEN_MAPPINGS_PATTERN = Pattern.compile("(\\r?\\n)+\\s+\\r?\\n");
+    // Matches the start of the ID of each mapping
+    private static final Pattern MAPPING_ID_PATTERN = Pattern.compile("^([\\t ]*mappingId[\\t ]+)(?=\\S)",
+            Pattern.MULTILINE);
+
+    private static final String MAPPING_ID_SEPARATOR = "/";
 
     private final Map<String, String> prefixMap = new HashMap<>();
     private final Map<String, SQLPPTriplesMap> triplesMap = new HashMap<>();
 
     public void addMappings(Path ontopMappingFilePath) {
-        try (TempFile tempFilePath = reformatMappingFile(ontopMappingFilePath)) {
+        addMappings(ontopMappingFilePath, null);
+    }
+
+    /**
+     * Add the mappings from a file, prefixing their IDs so that they can't
+     * replace mappings that were added with a different prefix.
+     * 
+     * @param idPrefix prefix for the mapping IDs, or null to leave them unchanged
+     */
+    public void addMappings(Path ontopMappingFilePath, String idPrefix) {
+        try (TempFile tempFilePath = reformatMappingFile(ontopMappingFilePath, idPrefix)) {
 
             PreProcessedMapping<SQLPPTriplesMap> extraMapings = generateConfiguration(tempFilePath.getPath())
                     .loadProvidedPPMapping();
@@ -59,7 +75,19 @@ final class SQLPPMappingImplementation implements SQLPPMapping {
         }
     }
 
-    private static TempFile reformatMappingFile(Path ontopMappingFilePath) throws IOException {
+    /**
+     * Remove the mappings that were added with the given ID prefix.
+     */
+    public void removeMappings(String idPrefix) {
+        triplesMap.keySet().removeIf(id -> id.startsWith(idPrefix + MAPPING_ID_SEPARATOR));
+    }
+
+    static String prefixMappingIds(String mappings, String idPrefix) {
+        return MAPPING_ID_PATTERN.matcher(mappings)
+                .replaceAll("$1" + Matcher.quoteReplacement(idPrefix + MAPPING_ID_SEPARATOR));
+    }
+
+    private static TempFile reformatMappingFile(Path ontopMappingFilePath, String idPrefix) throws IOException {
         TempFile tempFilePath = createTempOBDAFile(ontopMappingFilePath);
         String transformedMappings = Files.readString(ontopMappingFilePath);
         // Remove all comments (any text following a # and a space or tab, e.g.,
@@ -75,6 +103,9 @@ final class SQLPPMappingImplementation implements SQLPPMapping {
         // Problems result if there are tabs between mappings so this replaces them with
         // newline characters.
         transformedMappings = WHITESPACE_BETWEEN_MAPPINGS_PATTERN.matcher(transformedMappings).replaceAll("$1$1");
+        if (null != idPrefix) {
+            transformedMappings = prefixMappingIds(transformedMappings, idPrefix);
+        }
         Files.writeString(tempFilePath.getPath(), transformedMappings);
         return tempFilePath;
     }
@@ -0,0 +1,590 @@
+package com.cmclinnovations.stack.clients.postgis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads CSV files into PostgreSQL tables using the COPY command.
+ *
+ * The column types are inferred from a sample of the rows of the first file for
+ * each table, the table is (re)created and then the files are streamed into it
+ * concurrently. If a value outside of the sample doesn't fit its column's
+ * inferred type the table is recreated with text columns and loaded again.
+ */
+class CSVCopyLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CSVCopyLoader.class);
+
+    private static final byte[] BINARY_SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final Pattern BOOLEAN_PATTERN = Pattern.compile("(?i)true|false");
+    // Values with leading zeros, such as codes and identifiers, are kept as text
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("[+-]?(0|[1-9]\\d{0,17})");
+    private static final Pattern NUMERIC_PATTERN = Pattern
+            .compile("[+-]?((0|[1-9]\\d*)(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?");
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern TIMESTAMP_PATTERN = Pattern
+            .compile("\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}(:\\d{2}(\\.\\d{1,6})?)?");
+
+    /**
+     * Column types, in the order that they are tried when inferring the type of a
+     * column.
+     */
+    enum ColumnType {
+        BOOLEAN("boolean"),
+        BIGINT("bigint"),
+        DOUBLE("double precision"),
+        DATE("date"),
+        TIMESTAMP("timestamp"),
+        TEXT("text");
+
+        private final String sqlType;
+
+        ColumnType(String sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        String getSqlType() {
+            return sqlType;
+        }
+
+        /**
+         * @return the narrowest type that can hold both a value of this type and
+         *         the value
+         */
+        ColumnType widen(String value) {
+            switch (this) {
+                case BOOLEAN:
+                    return BOOLEAN_PATTERN.matcher(value).matches() ? BOOLEAN : TEXT;
+                case BIGINT:
+                    if (INTEGER_PATTERN.matcher(value).matches()) {
+                        return BIGINT;
+                    }
+                    return NUMERIC_PATTERN.matcher(value).matches() ? DOUBLE : TEXT;
+                case DOUBLE:
+                    return NUMERIC_PATTERN.matcher(value).matches() ? DOUBLE : TEXT;
+                case DATE:
+                    if (DATE_PATTERN.matcher(value).matches()) {
+                        return DATE;
+                    }
+                    return TIMESTAMP_PATTERN.matcher(value).matches() ? TIMESTAMP : TEXT;
+                case TIMESTAMP:
+                    return DATE_PATTERN.matcher(value).matches() || TIMESTAMP_PATTERN.matcher(value).matches()
+                            ? TIMESTAMP
+                            : TEXT;
+                default:
+                    return TEXT;
+            }
+        }
+
+        /**
+         * @return the type of a single value
+         */
+        static ColumnType of(String value) {
+            for (ColumnType type : values()) {
+                if (type.widen(value) == type) {
+                    return type;
+                }
+            }
+            return TEXT;
+        }
+    }
+
+    /**
+     * Reads records from a CSV file, allowing for quoted values that contain
+     * delimiters, quotes and line breaks.
+     */
+    static final class CSVReader implements AutoCloseable {
+
+        private final Reader reader;
+        private final char delimiter;
+        private final String nullString;
+        private int next;
+
+        CSVReader(Reader reader, char delimiter, String nullString) throws IOException {
+            this.reader = reader;
+            this.delimiter = delimiter;
+            this.nullString = nullString;
+            this.next = reader.read();
+        }
+
+        /**
+         * @return the values in the next record, with null for unquoted values that
+         *         match the null string, or null at the end of the file
+         */
+        List<String> readRecord() throws IOException {
+            if (-1 == next) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            boolean inQuotes = false;
+            while (true) {
+                int c = next;
+                next = reader.read();
+                if (inQuotes) {
+                    if ('"' == c) {
+                        if ('"' == next) {
+                            value.append('"');
+                            next = reader.read();
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else if (-1 == c) {
+                        throw new IOException("End of file reached inside a quoted value.");
+                    } else {
+                        value.append((char) c);
+                    }
+                } else if ('"' == c) {
+                    quoted = true;
+                    inQuotes = true;
+                } else if (delimiter == c) {
+                    values.add(toValue(value, quoted));
+                    value.setLength(0);
+                    quoted = false;
+                } else if ('\r' == c && '\n' == next) {
+                    // Handled with the following line feed
+                } else if ('\n' == c || '\r' == c || -1 == c) {
+                    values.add(toValue(value, quoted));
+                    return values;
+                } else {
+                    value.append((char) c);
+                }
+            }
+        }
+
+        private String toValue(StringBuilder value, boolean quoted) {
+            String string = value.toString();
+            return !quoted && nullString.equals(string) ? null : string;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * The layout of a table that one or more files are loaded into.
+     */
+    static final class TableLayout {
+        private final List<String> columns;
+        private final List<ColumnType> types;
+
+        TableLayout(List<String> columns, List<ColumnType> types) {
+            this.columns = columns;
+            this.types = types;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        List<ColumnType> getTypes() {
+            return types;
+        }
+
+        boolean isAllText() {
+            return types.stream().allMatch(ColumnType.TEXT::equals);
+        }
+
+        TableLayout asText() {
+            return new TableLayout(columns, Collections.nCopies(columns.size(), ColumnType.TEXT));
+        }
+    }
+
+    private final PostGISClient postGISClient;
+    private final String database;
+    private final CSVCopyOptions options;
+    private final int concurrency;
+
+    CSVCopyLoader(PostGISClient postGISClient, String database, CSVCopyOptions options, int concurrency) {
+        this.postGISClient = postGISClient;
+        this.database = database;
+        this.options = options;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param tables the files to load into each table, keyed by the quoted,
+     *               schema qualified, table name
+     */
+    void load(Map<String, List<Path>> tables) {
+        Map<String, TableLayout> layouts = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Path>> table : tables.entrySet()) {
+            TableLayout layout = inferLayout(table.getValue().get(0));
+            createTable(table.getKey(), layout);
+            layouts.put(table.getKey(), layout);
+        }
+        Map<String, List<Throwable>> failures = copyFiles(tables, layouts);
+
+        // The types are only inferred from a sample of the rows so reload any table
+        // that has a value that doesn't fit its column's type with text columns
+        Map<String, List<Path>> retries = new LinkedHashMap<>();
+        failures.entrySet().removeIf(entry -> {
+            String tableName = entry.getKey();
+            TableLayout layout = layouts.get(tableName);
+            if (layout.isAllText() || !entry.getValue().stream().allMatch(CSVCopyLoader::isTypeError)) {
+                return false;
+            }
+            LOGGER.warn("A value in the CSV file(s) for {} does not fit the inferred column types,"
+                    + " reloading it with text columns.", tableName);
+            TableLayout textLayout = layout.asText();
+            createTable(tableName, textLayout);
+            layouts.put(tableName, textLayout);
+            retries.put(tableName, tables.get(tableName));
+            return true;
+        });
+        failures.putAll(copyFiles(retries, layouts));
+
+        if (!failures.isEmpty()) {
+            int fileCount = tables.values().stream().mapToInt(List::size).sum();
+            int failureCount = failures.values().stream().mapToInt(List::size).sum();
+            RuntimeException exception = new RuntimeException(
+                    "Failed to copy " + failureCount + " of " + fileCount + " CSV file(s) into database '"
+                            + database + "'.");
+            failures.values().forEach(tableFailures -> tableFailures.forEach(exception::addSuppressed));
+            throw exception;
+        }
+    }
+
+    /**
+     * @return true if the exception, or one of its causes, was caused by a value
+     *         that isn't valid for its column's type
+     */
+    static boolean isTypeError(Throwable ex) {
+        for (Throwable cause = ex; null != cause; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException || cause instanceof DateTimeParseException) {
+                return true;
+            }
+            // Class 22 is PostgreSQL's "data exception", such as an invalid value
+            if (cause instanceof SQLException && null != ((SQLException) cause).getSQLState()
+                    && ((SQLException) cause).getSQLState().startsWith("22")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream is = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            return new GZIPInputStream(is, 1 << 16);
+        }
+        return is;
+    }
+
+    private CSVReader openReader(Path file) throws IOException {
+        return new CSVReader(new BufferedReader(new InputStreamReader(open(file),
+                Charset.forName(options.getEncoding()))), options.getDelimiter(), options.getNullString());
+    }
+
+    TableLayout inferLayout(Path file) {
+        try (CSVReader reader = openReader(file)) {
+            List<String> header = reader.readRecord();
+            if (null == header) {
+                throw new RuntimeException("The CSV file '" + file + "' is empty.");
+            }
+            List<String> columns = getColumnNames(header);
+
+            ColumnType[] types = new ColumnType[columns.size()];
+            if (options.isInferTypes()) {
+                List<String> row;
+                for (int count = 0; count < options.getSampleRows() && null != (row = reader.readRecord()); count++) {
+                    for (int index = 0; index < Math.min(row.size(), types.length); index++) {
+                        String value = row.get(index);
+                        if (null != value) {
+                            types[index] = null == types[index] ? ColumnType.of(value) : types[index].widen(value);
+                        }
+                    }
+                }
+            }
+            List<ColumnType> columnTypes = new ArrayList<>(types.length);
+            for (ColumnType type : types) {
+                // Columns with no values in the sample are created as text
+                columnTypes.add(null == type ? ColumnType.TEXT : type);
+            }
+            return new TableLayout(columns, columnTypes);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read the header and sample rows of the CSV file '" + file + "'.",
+                    ex);
+        }
+    }
+
+    private static List<String> getColumnNames(List<String> header) {
+        List<String> columns = new ArrayList<>(header.size());
+        for (int index = 0; index < header.size(); index++) {
+            String column = header.get(index);
+            // Match the names that ogr2ogr gives to unnamed columns
+            columns.add(null == column || column.isEmpty() ? "field_" + (index + 1) : column);
+        }
+        return columns;
+    }
+
+    private void createTable(String tableName, TableLayout layout) {
+        List<String> columnDefinitions = new ArrayList<>();
+        // Match the primary key that ogr2ogr adds
+        columnDefinitions.add("ogc_fid serial PRIMARY KEY");
+        for (int index = 0; index < layout.getColumns().size(); index++) {
+            columnDefinitions.add(quoteIdentifier(layout.getColumns().get(index)) + " "
+                    + layout.getTypes().get(index).getSqlType());
+        }
+        // Drop any existing table so that its columns match the files being loaded
+        String sql = "DROP TABLE IF EXISTS " + tableName + "; CREATE TABLE " + tableName + " ("
+                + String.join(", ", columnDefinitions) + ")";
+
+        try (Connection conn = postGISClient.getConnection(database);
+                Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to create table " + tableName + " in database '" + database + "'.",
+                    ex);
+        }
+    }
+
+    private void copy(String tableName, TableLayout layout, Path file) {
+        String columnList = layout.getColumns().stream()
+                .map(CSVCopyLoader::quoteIdentifier)
+                .collect(Collectors.joining(", "));
+        String sql = "COPY " + tableName + " (" + columnList + ") FROM STDIN WITH ("
+                + (options.isBinary()
+                        ? "FORMAT binary"
+                        : "FORMAT csv, HEADER true, DELIMITER " + quoteLiteral(Character.toString(options.getDelimiter()))
+                                + ", NULL " + quoteLiteral(options.getNullString())
+                                + ", ENCODING " + quoteLiteral(options.getEncoding()))
+                + ")";
+
+        long start = System.nanoTime();
+        try (Connection conn = postGISClient.getConnection(database)) {
+            checkHeader(file, layout);
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            long rows;
+            if (options.isBinary()) {
+                rows = copyBinary(copyManager, sql, file, layout);
+            } else {
+                try (InputStream is = open(file)) {
+                    rows = copyManager.copyIn(sql, is);
+                }
+            }
+            LOGGER.info("Copied {} row(s) from '{}' into {} in {} ms.", rows, file, tableName,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | SQLException ex) {
+            throw new RuntimeException("Failed to copy the CSV file '" + file + "' into " + tableName
+                    + " in database '" + database + "'.", ex);
+        }
+    }
+
+    /**
+     * Files loaded into the same table need to have the same columns, in the same
+     * order, as the first file.
+     */
+    private void checkHeader(Path file, TableLayout layout) throws IOException {
+        try (CSVReader reader = openReader(file)) {
+            List<String> header = reader.readRecord();
+            if (null == header || !getColumnNames(header).equals(layout.getColumns())) {
+                throw new IOException("The header " + header + " does not match the columns "
+                        + layout.getColumns() + " of the first file loaded into the table.");
+            }
+        }
+    }
+
+    private long copyBinary(CopyManager copyManager, String sql, Path file, TableLayout layout)
+            throws IOException, SQLException {
+        // Encode the rows on another thread and stream them to the server
+        PipedInputStream pipeIn = new PipedInputStream(1 << 16);
+        PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try (OutputStream os = pipeOut) {
+                writeBinary(file, layout, os);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to convert the CSV file '" + file + "' to binary.", ex);
+            }
+        });
+        long rowCount;
+        try (InputStream is = pipeIn) {
+            rowCount = copyManager.copyIn(sql, is);
+        } catch (IOException | SQLException | RuntimeException ex) {
+            // Closing the pipe stops the writer, wait for it and include the reason that it
+            // stopped in case it failed first
+            Throwable writerFailure = writer.handle((result, failure) -> failure).join();
+            if (null != writerFailure) {
+                ex.addSuppressed(writerFailure instanceof CompletionException ? writerFailure.getCause()
+                        : writerFailure);
+            }
+            throw ex;
+        }
+
+        try {
+            writer.join();
+        } catch (CompletionException ex) {
+            // The writer's exception already describes which file failed
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+        return rowCount;
+    }
+
+    void writeBinary(Path file, TableLayout layout, OutputStream outputStream) throws IOException {
+        List<ColumnType> types = layout.getTypes();
+        DataOutputStream os = new DataOutputStream(outputStream);
+        os.write(BINARY_SIGNATURE);
+        // Flags and header extension length
+        os.writeInt(0);
+        os.writeInt(0);
+
+        try (CSVReader reader = openReader(file)) {
+            // Skip the header
+            reader.readRecord();
+            List<String> row;
+            long rowNumber = 1;
+            ByteArrayOutputStream field = new ByteArrayOutputStream();
+            DataOutputStream fieldStream = new DataOutputStream(field);
+            while (null != (row = reader.readRecord())) {
+                rowNumber++;
+                if (row.size() != types.size()) {
+                    throw new IOException("Row " + rowNumber + " has " + row.size() + " value(s) but the table has "
+                            + types.size() + " column(s).");
+                }
+                os.writeShort(types.size());
+                for (int index = 0; index < types.size(); index++) {
+                    String value = row.get(index);
+                    if (null == value) {
+                        os.writeInt(-1);
+                        continue;
+                    }
+                    field.reset();
+                    try {
+                        if (types.get(index).widen(value) != types.get(index)) {
+                            throw new IllegalArgumentException();
+                        }
+                        writeBinaryValue(types.get(index), value, fieldStream);
+                    } catch (IllegalArgumentException | DateTimeParseException ex) {
+                        throw new IOException("The value '" + value + "' in row " + rowNumber + " of column '"
+                                + layout.getColumns().get(index) + "' is not a valid "
+                                + types.get(index).getSqlType() + ".", ex);
+                    }
+                    os.writeInt(field.size());
+                    field.writeTo(os);
+                }
+            }
+        }
+        // File trailer
+        os.writeShort(-1);
+        os.flush();
+    }
+
+    static void writeBinaryValue(ColumnType type, String value, DataOutputStream os) throws IOException {
+        switch (type) {
+            case BOOLEAN:
+                os.writeBoolean(Boolean.parseBoolean(value));
+                break;
+            case BIGINT:
+                os.writeLong(Long.parseLong(value.startsWith("+") ? value.substring(1) : value));
+                break;
+            case DOUBLE:
+                os.writeDouble(Double.parseDouble(value));
+                break;
+            case DATE:
+                os.writeInt((int) ChronoUnit.DAYS.between(POSTGRES_EPOCH.toLocalDate(), LocalDate.parse(value)));
+                break;
+            case TIMESTAMP:
+                LocalDateTime dateTime = DATE_PATTERN.matcher(value).matches()
+                        ? LocalDate.parse(value).atStartOfDay()
+                        : LocalDateTime.parse(value.replace(' ', 'T'));
+                os.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, dateTime));
+                break;
+            default:
+                os.write(value.getBytes(StandardCharsets.UTF_8));
+                break;
+        }
+    }
+
+    /**
+     * Copy the files into their tables, running up to the concurrency limit at the
+     * same time.
+     *
+     * @return the failures, keyed by table name
+     */
+    private Map<String, List<Throwable>> copyFiles(Map<String, List<Path>> tables,
+            Map<String, TableLayout> layouts) {
+        Map<String, List<Throwable>> failures = new LinkedHashMap<>();
+        List<Runnable> tasks = new ArrayList<>();
+        for (Map.Entry<String, List<Path>> table : tables.entrySet()) {
+            String tableName = table.getKey();
+            TableLayout layout = layouts.get(tableName);
+            table.getValue().forEach(file -> tasks.add(() -> {
+                try {
+                    copy(tableName, layout, file);
+                } catch (RuntimeException ex) {
+                    LOGGER.error("Failed to copy CSV file.", ex);
+                    synchronized (failures) {
+                        failures.computeIfAbsent(tableName, key -> new ArrayList<>()).add(ex);
+                    }
+                }
+            }));
+        }
+
+        if (concurrency <= 1 || tasks.size() < 2) {
+            tasks.forEach(Runnable::run);
+            return failures;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, tasks.size()));
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+            tasks.forEach(task -> futures.add(CompletableFuture.runAsync(task, executor)));
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String quoteLiteral(String literal) {
+        return "'" + literal.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,63 @@
+package com.cmclinnovations.stack.clients.postgis;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Settings for loading CSV files into PostgreSQL with the COPY command.
+ */
+@JsonInclude(Include.NON_DEFAULT)
+public class CSVCopyOptions {
+
+    @JsonProperty
+    private char delimiter = ',';
+    @JsonProperty
+    private String nullString = "";
+    @JsonProperty
+    private String encoding = "UTF8";
+    @JsonProperty
+    private int sampleRows = 1000;
+    @JsonProperty
+    private boolean inferTypes = true;
+    @JsonProperty
+    private boolean binary = false;
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * @return the unquoted value that represents a null value
+     */
+    public String getNullString() {
+        return nullString;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the number of rows at the start of each table's first file that are
+     *         used to work out the column types
+     */
+    public int getSampleRows() {
+        return sampleRows;
+    }
+
+    /**
+     * @return false if all of the columns should be created as text
+     */
+    public boolean isInferTypes() {
+        return inferTypes;
+    }
+
+    /**
+     * @return true if the rows should be parsed here and sent using the binary
+     *         COPY format, rather than sending the files as they are
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+}
@@ -23,7 +23,7 @@ public class PGRoutingClient extends PostGISClient {
 
     private static PGRoutingClient instance = null;
 
-    public static PGRoutingClient getInstance() {
+    public static synchronized PGRoutingClient getInstance() {
         if (null == instance) {
             instance = new PGRoutingClient();
         }
@@ -0,0 +1,34 @@
+package com.cmclinnovations.stack.clients.postgis;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import uk.ac.cam.cares.jps.base.query.RemoteRDBStoreClient;
+
+/**
+ * A {@link RemoteRDBStoreClient} that borrows its connections from a pool
+ * rather than opening a new one each time. Closing a connection returns it to
+ * the pool, and any session state left on it is discarded when it is next
+ * borrowed.
+ */
+class PooledRDBStoreClient extends RemoteRDBStoreClient {
+
+    private final DataSource dataSource;
+
+    PooledRDBStoreClient(String url, String user, String password, DataSource dataSource) {
+        super(url, user, password);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() {
+        try {
+            return PostGISClient.borrowConnection(dataSource);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to get a connection to the database with JDBC URL '"
+                    + getRdbURL() + "'.", ex);
+        }
+    }
+}
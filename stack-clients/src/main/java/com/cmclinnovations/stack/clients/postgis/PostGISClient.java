@@ -3,15 +3,29 @@ package com.cmclinnovations.stack.clients.postgis;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.cmclinnovations.stack.clients.core.ClientWithEndpoint;
 import com.cmclinnovations.stack.clients.core.EndpointNames;
+import com.cmclinnovations.stack.clients.core.StackClient;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
 import uk.ac.cam.cares.jps.base.query.RemoteRDBStoreClient;
 
@@ -23,9 +37,38 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
 
     private static final Logger logger = LoggerFactory.getLogger(PostGISClient.class);
 
+    /**
+     * Name of the environment variable that sets the maximum number of pooled
+     * connections to each database.
+     */
+    public static final String POOL_SIZE_KEY = "POSTGIS_POOL_SIZE";
+
+    /**
+     * Name of the environment variable that sets how long, in seconds, a pooled
+     * connection can be idle before it is closed.
+     */
+    public static final String POOL_IDLE_TIMEOUT_KEY = "POSTGIS_POOL_IDLE_TIMEOUT";
+
+    /**
+     * Name of the environment variable that sets the number of CSV files that are
+     * copied into the database at the same time.
+     */
+    public static final String COPY_CONCURRENCY_KEY = "POSTGIS_COPY_CONCURRENCY";
+
     private static PostGISClient instance = null;
 
-    public static PostGISClient getInstance() {
+    private final int poolSize = StackClient.getIntegerSetting(POOL_SIZE_KEY, 4);
+
+    private final int poolIdleTimeout = StackClient.getIntegerSetting(POOL_IDLE_TIMEOUT_KEY, 60);
+
+    private final int copyConcurrency = StackClient.getIntegerSetting(COPY_CONCURRENCY_KEY, 2);
+
+    /**
+     * Connection pools keyed by JDBC URL and user name.
+     */
+    private final Map<String, HikariDataSource> dataSources = new ConcurrentHashMap<>();
+
+    public static synchronized PostGISClient getInstance() {
         if (null == instance) {
             instance = new PostGISClient();
         }
@@ -37,7 +80,66 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
     }
 
     private Connection getDefaultConnection() throws SQLException {
-        return getRemoteStoreClient().getConnection();
+        return getConnection(DEFAULT_DATABASE_NAME);
+    }
+
+    /**
+     * Borrow a connection to a database from its pool, the connection is returned
+     * to the pool when it is closed.
+     *
+     * @param database name of the database
+     * @return an open connection to the database
+     * @throws SQLException if a connection could not be obtained
+     */
+    public Connection getConnection(String database) throws SQLException {
+        return borrowConnection(getDataSource(readEndpointConfig(), database));
+    }
+
+    /**
+     * Borrow a connection from a pool and discard any session state, such as a
+     * changed search_path or temporary tables, left on it by its previous user.
+     */
+    static Connection borrowConnection(DataSource dataSource) throws SQLException {
+        Connection conn = dataSource.getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DISCARD ALL");
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        return conn;
+    }
+
+    private HikariDataSource getDataSource(PostGISEndpointConfig endpoint, String database) {
+        String jdbcURL = endpoint.getJdbcURL(database);
+        return dataSources.computeIfAbsent(endpoint.getUsername() + "@" + jdbcURL, key -> {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("postgis-" + database);
+            config.setDriverClassName(endpoint.getJdbcDriver());
+            config.setJdbcUrl(jdbcURL);
+            config.setUsername(endpoint.getUsername());
+            config.setPassword(endpoint.getPassword());
+            config.setMaximumPoolSize(poolSize);
+            // Let the pools of databases that are no longer being used empty completely
+            config.setMinimumIdle(0);
+            config.setIdleTimeout(TimeUnit.SECONDS.toMillis(poolIdleTimeout));
+            // Don't try to connect until the first connection is requested
+            config.setInitializationFailTimeout(-1);
+            return new HikariDataSource(config);
+        });
+    }
+
+    /**
+     * Close the connection pool for a database, this needs to be done before the
+     * database can be dropped.
+     */
+    private void closeDataSource(String database) {
+        PostGISEndpointConfig endpoint = readEndpointConfig();
+        HikariDataSource dataSource = dataSources
+                .remove(endpoint.getUsername() + "@" + endpoint.getJdbcURL(database));
+        if (null != dataSource) {
+            dataSource.close();
+        }
     }
 
     public void createDatabase(String database) {
@@ -86,7 +188,7 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
     }
 
     private void createDefaultExtensions(String database) {
-        try (Connection conn = getRemoteStoreClient(database).getConnection();
+        try (Connection conn = getConnection(database);
                 Statement stmt = conn.createStatement()) {
             String sql = "CREATE EXTENSION IF NOT EXISTS postgis; "
                     + "CREATE EXTENSION IF NOT EXISTS postgis_topology; "
@@ -98,7 +200,25 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
         }
     }
 
+    /**
+     * @return true if the database has been created
+     */
+    public boolean databaseExists(String database) {
+        try (Connection conn = getDefaultConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM pg_database WHERE datname = ?")) {
+            stmt.setString(1, database);
+            try (ResultSet resultSet = stmt.executeQuery()) {
+                return resultSet.next();
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to check whether database '" + database
+                    + "' exists on the server with JDBC URL '"
+                    + readEndpointConfig().getJdbcURL(DEFAULT_DATABASE_NAME) + "'.", ex);
+        }
+    }
+
     public void removeDatabase(String database) {
+        closeDataSource(database);
         try (Connection conn = getDefaultConnection();
                 Statement stmt = conn.createStatement()) {
             String sql = "DROP DATABASE \"" + database + "\"";
@@ -115,34 +235,31 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
     }
 
     public void createSchema(String database, String schemaName) {
-        RemoteRDBStoreClient remoteStoreClient = getRemoteStoreClient(database);
-        try (Connection conn = remoteStoreClient.getConnection();
+        try (Connection conn = getConnection(database);
                 Statement stmt = conn.createStatement()) {
             String sql = "CREATE SCHEMA IF NOT EXISTS \"" + schemaName + "\"";
             stmt.executeUpdate(sql);
         } catch (SQLException ex) {
             throw new RuntimeException("Failed to create schema '" + schemaName
                     + "' in database with JDBC URL '"
-                    + remoteStoreClient.getRdbURL() + "'.", ex);
+                    + readEndpointConfig().getJdbcURL(database) + "'.", ex);
         }
     }
 
     public void removeSchema(String database, String schemaName) {
-        RemoteRDBStoreClient remoteStoreClient = getRemoteStoreClient(database);
-        try (Connection conn = remoteStoreClient.getConnection();
+        try (Connection conn = getConnection(database);
                 Statement stmt = conn.createStatement()) {
             String sql = "DROP SCHEMA IF EXISTS " + schemaName;
             stmt.executeUpdate(sql);
         } catch (SQLException ex) {
             throw new RuntimeException("Failed to drop schema '" + schemaName
                     + "' from database with JDBC URL '"
-                    + remoteStoreClient.getRdbURL() + "'.", ex);
+                    + readEndpointConfig().getJdbcURL(database) + "'.", ex);
         }
     }
 
     public void executeUpdate(String database, String sql) {
-        RemoteRDBStoreClient remoteStoreClient = getRemoteStoreClient(database);
-        try (Connection conn = remoteStoreClient.getConnection();
+        try (Connection conn = getConnection(database);
                 Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
         } catch (SQLException ex) {
@@ -150,15 +267,44 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
                 // Database doesn't exist error
             } else {
                 throw new RuntimeException("Failed to run SQL update '" + sql + "' on the server with JDBC URL '"
-                        + remoteStoreClient.getRdbURL() + "'.", ex);
+                        + readEndpointConfig().getJdbcURL(database) + "'.", ex);
             }
         }
     }
 
+    /**
+     * Load CSV files straight into tables using the COPY command.
+     *
+     * @param table name of the table to load all of the files into, or null to
+     *              load each file into a table named after the file
+     */
+    public void uploadCSVFiles(String database, String schema, String table, List<Path> files,
+            CSVCopyOptions options) {
+        if (copyConcurrency < 1) {
+            throw new IllegalArgumentException("The value of '" + COPY_CONCURRENCY_KEY + "' must be at least 1.");
+        }
+
+        Map<String, List<Path>> tables = new LinkedHashMap<>();
+        for (Path file : files) {
+            String tableName = null != table ? table
+                    : file.getFileName().toString().replaceFirst("(?i)\\.csv(\\.gz)?$", "");
+            String qualifiedName = CSVCopyLoader.quoteIdentifier(schema) + "."
+                    + CSVCopyLoader.quoteIdentifier(tableName);
+            tables.computeIfAbsent(qualifiedName, key -> new ArrayList<>()).add(file);
+        }
+
+        new CSVCopyLoader(this, database, options, copyConcurrency).load(tables);
+    }
+
     public RemoteRDBStoreClient getRemoteStoreClient() {
         return getRemoteStoreClient(DEFAULT_DATABASE_NAME);
     }
 
+    /**
+     * @return a store client that opens its own connections, rather than borrowing
+     *         them from the pool, so that session state set by, or connections
+     *         left open by, external callers can't affect other users of the pool
+     */
     public RemoteRDBStoreClient getRemoteStoreClient(String database) {
         PostGISEndpointConfig endpoint = readEndpointConfig();
         return new RemoteRDBStoreClient(endpoint.getJdbcURL(database),
@@ -166,10 +312,23 @@ public class PostGISClient extends ClientWithEndpoint<PostGISEndpointConfig> {
                 endpoint.getPassword());
     }
 
+    /**
+     * @return a store client whose connections are borrowed from the pool for the
+     *         database, for the stack's own SQL; each borrowed connection has its
+     *         session state reset so settings changed by that SQL don't leak
+     */
+    public RemoteRDBStoreClient getPooledRemoteStoreClient(String database) {
+        PostGISEndpointConfig endpoint = readEndpointConfig();
+        return new PooledRDBStoreClient(endpoint.getJdbcURL(database),
+                endpoint.getUsername(),
+                endpoint.getPassword(),
+                getDataSource(endpoint, database));
+    }
+
     public void resetSchema(String database) {
         try (InputStream is = PostGISClient.class.getResourceAsStream("postgis_reset_schema.sql")) {
             String sqlQuery = new String(is.readAllBytes()).replace("{database}", database);
-            PostGISClient.getInstance().getRemoteStoreClient(database).executeUpdate(sqlQuery);
+            getPooledRemoteStoreClient(database).executeUpdate(sqlQuery);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to read resource file 'postgis_reset_schema.sql'.", ex);
         }
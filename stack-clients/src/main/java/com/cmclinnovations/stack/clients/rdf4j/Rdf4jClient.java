@@ -22,7 +22,7 @@ public class Rdf4jClient extends ClientWithEndpoint<Rdf4jEndpointConfig> {
 
     private final RemoteRepositoryManager manager;
 
-    public static Rdf4jClient getInstance() {
+    public static synchronized Rdf4jClient getInstance() {
         if (null == instance) {
             instance = new Rdf4jClient();
         }
@@ -2,6 +2,7 @@ package com.cmclinnovations.stack.clients.rml;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -12,10 +13,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -23,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import com.cmclinnovations.stack.clients.blazegraph.BlazegraphClient;
 import com.cmclinnovations.stack.clients.core.EndpointNames;
+import com.cmclinnovations.stack.clients.core.StackClient;
 import com.cmclinnovations.stack.clients.docker.ContainerClient;
 import com.cmclinnovations.stack.clients.utils.FileUtils;
 import com.cmclinnovations.stack.clients.utils.TempDir;
@@ -37,9 +43,27 @@ public class RmlMapperClient extends ContainerClient {
   private static final String OUTPUT_DIR = "output";
   private static final String YARRRML_PARSER_EXECUTABLE_PATH = "/app/bin/parser.js";
 
+  /**
+   * Name of the environment variable that sets the number of batches that the
+   * YARRRML files are split into, and the number of batches that are mapped at
+   * the same time.
+   */
+  public static final String RML_MAPPER_CONCURRENCY_KEY = "RML_MAPPER_CONCURRENCY";
+
+  /**
+   * Name of the environment variable that sets whether the mapped RDF is
+   * uploaded while the mapping is still running, rather than written to files
+   * that are uploaded afterwards.
+   */
+  public static final String RML_STREAM_OUTPUT_KEY = "RML_STREAM_OUTPUT";
+
   private static RmlMapperClient instance = null;
 
-  public static RmlMapperClient getInstance() {
+  private final int concurrency = StackClient.getIntegerSetting(RML_MAPPER_CONCURRENCY_KEY, 2);
+
+  private final boolean streamOutput = StackClient.getBooleanSetting(RML_STREAM_OUTPUT_KEY, false);
+
+  public static synchronized RmlMapperClient getInstance() {
     if (null == instance) {
       instance = new RmlMapperClient();
     }
@@ -47,6 +71,10 @@ public class RmlMapperClient extends ContainerClient {
   }
 
   private RmlMapperClient() {
+    if (this.concurrency < 1) {
+      throw new IllegalArgumentException("The value of '" + RML_MAPPER_CONCURRENCY_KEY
+          + "' must be at least 1, '" + this.concurrency + "' provided.");
+    }
   }
 
   /**
@@ -62,8 +90,8 @@ public class RmlMapperClient extends ContainerClient {
     try (TempDir tmpDir = makeLocalTempDir()) {
       // Copy all csv and rml files into the temp directory
       tmpDir.copyFrom(dirPath);
-      Map<String, String> rmlRules = this.genRmlRules(tmpDir);
-      this.convertToRDF(tmpDir, rmlRules, namespace);
+      List<Path> batchFiles = this.genBatches(tmpDir);
+      this.convertToRDF(tmpDir, batchFiles, namespace);
     }
   }
 
@@ -108,86 +136,196 @@ public class RmlMapperClient extends ContainerClient {
   }
 
   /**
-   * Generate RML rules from YARRRML files in the temporary directory if
-   * available.
+   * Combine the YARRRML files in the temporary directory into batches, each of
+   * which is converted to RML and mapped to RDF in a single run of the parser and
+   * of the mapper, so that the Node and Java start up costs are paid once per
+   * batch rather than once per file. Files are only combined when their mapping
+   * names and prefixes don't clash.
    * 
    * @param tmpDir Target temporary directory.
+   * @return The paths of the YARRRML file for each batch.
    */
-  private Map<String, String> genRmlRules(TempDir tmpDir) {
-    LOGGER.info("Converting the YARRRML inputs into RML rules...");
-    String containerId = super.getContainerId(EndpointNames.RML);
+  private List<Path> genBatches(TempDir tmpDir) {
     Collection<URI> ymlFiles = this.getFiles(tmpDir.getPath(), YML_FILE_EXTENSION);
+    int nBatches = Math.max(1, Math.min(this.concurrency, ymlFiles.size()));
 
-    Map<String, String> rmlRules = new HashMap<>();
-    ymlFiles.forEach(ymlFile -> {
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+    List<YarrrmlFile> batches = new ArrayList<>();
+    int index = 0;
+    for (URI ymlFile : ymlFiles) {
+      LOGGER.info("Updating YARRRML rules with sources and targets for {}...", ymlFile);
+      YarrrmlFile yarrrmlFile;
       try {
-        String fileName = FileUtils.getFileNameWithoutExtension(ymlFile.toURL());
-        LOGGER.info("Updating YARRRML rules with sources and targets for {}...", fileName);
-        // Generate file path for the parsed YML file
-        YarrrmlFile yarrrmlFile = new YarrrmlFile(Paths.get(ymlFile));
-        Path parsedYmlPath = Files.writeString(Paths.get(ymlFile), yarrrmlFile.write());
-
-        LOGGER.info("Generating RML rules for {}...", fileName);
-        String execId = super.createComplexCommand(containerId, YARRRML_PARSER_EXECUTABLE_PATH, "-i",
-            parsedYmlPath.toString())
-            .withOutputStream(outputStream)
-            .withErrorStream(errorStream)
-            .exec();
-        super.handleErrors(errorStream, execId, LOGGER);
-        rmlRules.put(fileName, outputStream.toString(StandardCharsets.UTF_8));
+        yarrrmlFile = new YarrrmlFile(Paths.get(ymlFile));
       } catch (IOException e) {
-        LOGGER.error(containerId, e);
+        LOGGER.error("Failed to read YARRRML file {}.", ymlFile, e);
         throw new UncheckedIOException(e);
       }
-    });
-    return rmlRules;
+      // Spread the files evenly over the batches, starting a new batch if the
+      // file clashes with all of the existing ones
+      boolean merged = false;
+      if (batches.size() >= nBatches) {
+        for (int offset = 0; offset < batches.size() && !merged; offset++) {
+          merged = batches.get((index + offset) % batches.size()).merge(yarrrmlFile);
+        }
+        index++;
+        if (!merged) {
+          LOGGER.info("YARRRML file {} has mappings or prefixes that clash with the other files, "
+              + "it will be converted separately.", ymlFile);
+        }
+      }
+      if (!merged) {
+        batches.add(yarrrmlFile);
+      }
+    }
+
+    List<Path> batchFiles = new ArrayList<>(batches.size());
+    for (YarrrmlFile batch : batches) {
+      try {
+        Path batchFile = Files.createTempFile(tmpDir.getPath(), "batch", "." + YML_FILE_EXTENSION);
+        Files.writeString(batchFile, batch.write());
+        batchFiles.add(batchFile);
+      } catch (IOException e) {
+        LOGGER.error("Failed to write combined YARRRML file.", e);
+        throw new UncheckedIOException(e);
+      }
+    }
+    LOGGER.info("Combined {} YARRRML file(s) into {} batch(es).", ymlFiles.size(), batchFiles.size());
+    return batchFiles;
   }
 
   /**
-   * Parses the RML rules into RDF triples that will be uploaded at the target
-   * namespace.
+   * Generate RML rules from a YARRRML file.
    * 
-   * @param tmpDir    Target temporary directory.
-   * @param rmlRules  Input RML rules.
-   * @param namespace Target namespace to upload the converted RDF triples.
+   * @param ymlFile The YARRRML file.
+   */
+  private String genRmlRules(Path ymlFile) {
+    String containerId = super.getContainerId(EndpointNames.RML);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+    LOGGER.info("Generating RML rules for {}...", ymlFile);
+    String execId = super.createComplexCommand(containerId, YARRRML_PARSER_EXECUTABLE_PATH, "-i",
+        ymlFile.toString())
+        .withOutputStream(outputStream)
+        .withErrorStream(errorStream)
+        .withEvaluationTimeout(3600)
+        .exec();
+    super.handleErrors(errorStream, execId, LOGGER);
+    return outputStream.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses the YARRRML rules into RDF triples that will be uploaded at the target
+   * namespace. When streaming is enabled the mapper writes N-Quads to its
+   * standard output and they are uploaded in chunks while the mapping is still
+   * running, otherwise each batch is written to a Turtle file and the files are
+   * uploaded once all of the batches have been mapped.
+   * 
+   * @param tmpDir     Target temporary directory.
+   * @param batchFiles The YARRRML file for each batch.
+   * @param namespace  Target namespace to upload the converted RDF triples.
    */
-  private void convertToRDF(TempDir tmpDir, Map<String, String> rmlRules, String namespace) {
+  private void convertToRDF(TempDir tmpDir, List<Path> batchFiles, String namespace) {
     LOGGER.info("Uploading the csv files using the RML rules into the target endpoint...");
     String rmlMapperJavaContainerId = super.getContainerId(EndpointNames.RML_JAVA);
     // Initialise the output directory
     Path outputDir = tmpDir.getPath().resolve(OUTPUT_DIR);
-    try {
-      Files.createDirectories(outputDir);
-    } catch (IOException e) {
-      LOGGER.error(rmlMapperJavaContainerId, e);
-      throw new UncheckedIOException(e);
+    if (!this.streamOutput) {
+      try {
+        Files.createDirectories(outputDir);
+      } catch (IOException e) {
+        LOGGER.error(rmlMapperJavaContainerId, e);
+        throw new UncheckedIOException(e);
+      }
     }
 
-    rmlRules.forEach((fileName, content) -> {
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+    this.runConcurrently(batchFiles.stream().<Runnable>map(batchFile -> () -> {
+      String batchName = FileUtils.removeExtension(batchFile.getFileName().toString());
+      String content = this.genRmlRules(batchFile);
       try {
-        Path tmpRmlFilePath = Files.createTempFile(tmpDir.getPath(), fileName, "." + TTL_FILE_EXTENSION);
+        Path tmpRmlFilePath = Files.createTempFile(tmpDir.getPath(), batchName, "." + TTL_FILE_EXTENSION);
         Files.writeString(tmpRmlFilePath, content);
-        LOGGER.info("Executing RML rules for {}...", fileName);
-
-        String execId = super.createComplexCommand(rmlMapperJavaContainerId, "java", "-Dfile.encoding=UTF-8", "-jar",
-            "/rmlmapper.jar", "-m", tmpRmlFilePath.toString(),
-            "-o", outputDir.resolve(fileName + "." + TTL_FILE_EXTENSION).toString(), "-s", "turtle")
-            .withOutputStream(outputStream)
-            .withErrorStream(errorStream)
-            .exec();
-        super.handleErrors(errorStream, execId, LOGGER);
+        LOGGER.info("Executing RML rules for {}...", batchName);
+
+        if (this.streamOutput) {
+          try (OutputStream outputStream = BlazegraphClient.getInstance().openRDFStream(namespace,
+              "RML output of " + batchName)) {
+            this.executeRmlRules(rmlMapperJavaContainerId, outputStream, "-m", tmpRmlFilePath.toString(),
+                "-s", "nquads");
+          }
+        } else {
+          this.executeRmlRules(rmlMapperJavaContainerId, new ByteArrayOutputStream(), "-m",
+              tmpRmlFilePath.toString(), "-o", outputDir.resolve(batchName + "." + TTL_FILE_EXTENSION).toString(),
+              "-s", "turtle");
+        }
       } catch (IOException e) {
         LOGGER.error(rmlMapperJavaContainerId, e);
         throw new UncheckedIOException(e);
       }
-    });
+    }).collect(Collectors.toList()));
+
+    if (!this.streamOutput) {
+      LOGGER.info("Uploading output RDF files to endpoint...");
+      BlazegraphClient.getInstance().uploadRDFFiles(outputDir, namespace);
+    }
+  }
+
+  /**
+   * Runs the RMLMapper with the given arguments.
+   * 
+   * @param containerId  ID of the RMLMapper container.
+   * @param outputStream Receives the standard output of the mapper.
+   * @param args         Arguments to pass to the mapper.
+   */
+  private void executeRmlRules(String containerId, OutputStream outputStream, String... args) {
+    ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+    List<String> cmd = new ArrayList<>(List.of("java", "-Dfile.encoding=UTF-8", "-jar", "/rmlmapper.jar"));
+    cmd.addAll(List.of(args));
+    String execId = super.createComplexCommand(containerId, cmd.toArray(new String[0]))
+        .withOutputStream(outputStream)
+        .withErrorStream(errorStream)
+        .withEvaluationTimeout(3600)
+        .exec();
+    super.handleErrors(errorStream, execId, LOGGER);
+  }
+
+  /**
+   * Runs the tasks, up to the configured number at the same time, and reports
+   * all of the failures together once they have finished.
+   * 
+   * @param tasks The tasks to run.
+   */
+  private void runConcurrently(List<Runnable> tasks) {
+    int nThreads = Math.min(this.concurrency, tasks.size());
+    if (nThreads <= 1) {
+      tasks.forEach(Runnable::run);
+      return;
+    }
 
-    LOGGER.info("Uploading output RDF files to endpoint...");
-    BlazegraphClient.getInstance().uploadRDFFiles(outputDir, namespace);
+    ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    try {
+      List<CompletableFuture<Void>> futures = tasks.stream()
+          .map(task -> CompletableFuture.runAsync(task, executor))
+          .collect(Collectors.toList());
+
+      List<Throwable> failures = new ArrayList<>();
+      for (CompletableFuture<Void> future : futures) {
+        try {
+          future.join();
+        } catch (CompletionException ex) {
+          LOGGER.error("Failed to map a batch of YARRRML files.", ex.getCause());
+          failures.add(ex.getCause());
+        }
+      }
+
+      if (!failures.isEmpty()) {
+        RuntimeException exception = new RuntimeException(MessageFormat.format(
+            "Failed to map {0} of {1} batches of YARRRML files.", failures.size(), tasks.size()));
+        failures.forEach(exception::addSuppressed);
+        throw exception;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /**
@@ -16,6 +16,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.cmclinnovations.stack.clients.core.EndpointNames;
 import com.cmclinnovations.stack.clients.ontop.OntopClient;
+import com.cmclinnovations.stack.clients.postgis.PostGISClient;
 import com.cmclinnovations.stack.clients.utils.LocalTempDir;
 import com.cmclinnovations.stack.services.OntopService;
 import com.cmclinnovations.stack.services.ServiceManager;
@@ -85,18 +86,32 @@ public class TimeSeriesRDBClient<T> extends TimeSeriesRDBClientOntop<T> {
 
         ServiceManager serviceManager = new ServiceManager(false);
 
-        ServiceConfig newOntopServiceConfig = serviceManager.duplicateServiceConfig(EndpointNames.ONTOP, ontopName);
-        newOntopServiceConfig.setEnvironmentVariable(OntopService.ONTOP_DB_NAME, "postgres");
-
-        newOntopServiceConfig.getEndpoints()
-                .replaceAll((endpointName, connection) -> new com.cmclinnovations.stack.services.config.Connection(
-                        connection.getUrl(),
-                        connection.getUri(),
-                        URI.create(connection.getExternalPath().toString()
-                                .replace(EndpointNames.ONTOP, ontopName))));
-        serviceManager.initialiseService(stackName, ontopName);
-
-        OntopClient ontopClient = OntopClient.getInstance(ontopName);
+        OntopClient ontopClient;
+        String mappingIdPrefix;
+        if (OntopClient.isSharedModeEnabled()) {
+            // Serve the time series from the shared container rather than starting one
+            String sharedOntopName = OntopClient.getSharedOntopName(PostGISClient.DEFAULT_DATABASE_NAME);
+            serviceManager.addServiceAlias(stackName, sharedOntopName, ontopName);
+            ontopClient = OntopClient.getInstance(sharedOntopName);
+            ontopClient.writeAliasEndpointConfig(ontopName);
+            mappingIdPrefix = ontopName;
+        } else {
+            ServiceConfig newOntopServiceConfig = serviceManager.duplicateServiceConfig(EndpointNames.ONTOP,
+                    ontopName);
+            newOntopServiceConfig.setEnvironmentVariable(OntopService.ONTOP_DB_NAME,
+                    PostGISClient.DEFAULT_DATABASE_NAME);
+
+            newOntopServiceConfig.getEndpoints()
+                    .replaceAll((endpointName, connection) -> new com.cmclinnovations.stack.services.config.Connection(
+                            connection.getUrl(),
+                            connection.getUri(),
+                            URI.create(connection.getExternalPath().toString()
+                                    .replace(EndpointNames.ONTOP, ontopName))));
+            serviceManager.initialiseService(stackName, ontopName);
+
+            ontopClient = OntopClient.getInstance(ontopName);
+            mappingIdPrefix = null;
+        }
 
         // create temporary file for ontop mapping
         try (LocalTempDir tempDir = new LocalTempDir()) {
@@ -107,7 +122,7 @@ public class TimeSeriesRDBClient<T> extends TimeSeriesRDBClientOntop<T> {
             Files.write(filePath, obda.getBytes());
 
             // sends obda to container
-            ontopClient.updateOBDA(filePath);
+            ontopClient.updateOBDA(List.of(filePath), mappingIdPrefix);
         } catch (IOException e) {
             throw new JPSRuntimeException("Failed to write ontop mapping into temporary folder", e);
         }
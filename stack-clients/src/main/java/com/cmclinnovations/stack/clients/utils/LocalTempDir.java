@@ -1,16 +1,39 @@
 package com.cmclinnovations.stack.clients.utils;
 
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.Stream;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.cmclinnovations.stack.clients.core.StackClient;
 
 public class LocalTempDir extends LocalTempPath implements TempDir {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalTempDir.class);
+
+    /**
+     * Name of the environment variable that sets the comma separated list of
+     * ways that files can be staged in temporary directories, in order of
+     * preference. Copying is always used as a last resort.
+     */
+    public static final String STAGING_STRATEGIES_KEY = "STAGING_STRATEGIES";
+
     public LocalTempDir() throws IOException {
         super(Files.createTempDirectory(Path.of(StackClient.getScratchDir()), "tmp"));
     }
@@ -20,6 +43,7 @@ public class LocalTempDir extends LocalTempPath implements TempDir {
         Path path = getPath();
         if (Files.isDirectory(path)) {
             try {
+                // Only the links are deleted, not the files they point to
                 FileUtils.deleteDirectory(path.toFile());
             } catch (IOException ex) {
                 throw new RuntimeException("Failed to delete temporary directory '" + path + "'", ex);
@@ -27,25 +51,76 @@ public class LocalTempDir extends LocalTempPath implements TempDir {
         }
     }
 
+    /**
+     * Stage a file or directory in this temporary directory, linking to the
+     * source files where possible rather than copying them. Staged files must be
+     * replaced, rather than modified in place.
+     */
     @Override
     public void copyFrom(Path sourcePath) {
         Path targetDir = getPath();
-        copy(sourcePath, targetDir);
+        copy(sourcePath, targetDir, getStrategies());
     }
 
     @Override
     public void copyTo(Path targetDir) {
         Path sourcePath = getPath();
-        copy(sourcePath, targetDir);
+        List<StagingStrategy> strategies = getStrategies();
+        // Links to files in this directory would be broken when it is deleted
+        strategies.remove(StagingStrategy.SYMLINK);
+        copy(sourcePath, targetDir, strategies);
     }
 
-    private void copy(Path sourcePath, Path targetDir) {
+    private static List<StagingStrategy> getStrategies() {
+        String value = System.getenv(STAGING_STRATEGIES_KEY);
+        List<StagingStrategy> strategies = new ArrayList<>();
+        if (null == value || value.isBlank()) {
+            strategies.addAll(EnumSet.allOf(StagingStrategy.class));
+        } else {
+            for (String name : value.split(",")) {
+                try {
+                    StagingStrategy strategy = StagingStrategy.valueOf(name.strip().toUpperCase(Locale.ROOT));
+                    if (!strategies.contains(strategy)) {
+                        strategies.add(strategy);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Environment variable '" + STAGING_STRATEGIES_KEY
+                            + "' must be a comma separated list of " + Arrays.toString(StagingStrategy.values())
+                            + ", '" + value + "' provided.", ex);
+                }
+            }
+        }
+        if (!strategies.contains(StagingStrategy.COPY)) {
+            strategies.add(StagingStrategy.COPY);
+        }
+        return strategies;
+    }
+
+    private void copy(Path sourcePath, Path targetDir, List<StagingStrategy> strategies) {
+        Map<StagingStrategy, Integer> counts = new EnumMap<>(StagingStrategy.class);
         if (Files.isDirectory(sourcePath)) {
             try {
-                FileUtils.copyDirectory(sourcePath.toFile(), targetDir.toFile());
-                try (Stream<Path> paths = Files.walk(targetDir).parallel()) {
-                    paths.forEach(this::changePermissions);
-                }
+                Files.walkFileTree(sourcePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                        new SimpleFileVisitor<>() {
+                            @Override
+                            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                                    throws IOException {
+                                Path target = targetDir.resolve(sourcePath.relativize(dir).toString());
+                                Files.createDirectories(target);
+                                changePermissions(target);
+                                return FileVisitResult.CONTINUE;
+                            }
+
+                            @Override
+                            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                                    throws IOException {
+                                Path target = targetDir.resolve(sourcePath.relativize(file).toString());
+                                // Existing files are overwritten, as they were when the directory was copied
+                                Files.deleteIfExists(target);
+                                stageFile(file, target, strategies, counts);
+                                return FileVisitResult.CONTINUE;
+                            }
+                        });
             } catch (IOException ex) {
                 throw new RuntimeException(
                         "Failed to copy directory '" + sourcePath + "' into '" + targetDir + "'.",
@@ -53,9 +128,7 @@ public class LocalTempDir extends LocalTempPath implements TempDir {
             }
         } else if (Files.isRegularFile(sourcePath)) {
             try {
-                Path targetFile = targetDir.resolve(sourcePath.getFileName());
-                Files.copy(sourcePath, targetFile);
-                changePermissions(targetFile);
+                stageFile(sourcePath, targetDir.resolve(sourcePath.getFileName()), strategies, counts);
             } catch (IOException ex) {
                 throw new RuntimeException("Failed to copy file '" + sourcePath + "' into '" + targetDir + "'.",
                         ex);
@@ -64,6 +137,43 @@ public class LocalTempDir extends LocalTempPath implements TempDir {
             throw new RuntimeException("Couldn't copy '" + sourcePath + "' into '" + targetDir
                     + "' as the source was neither a file nor a directory.");
         }
+
+        LOGGER.debug("Staged '{}' in '{}': {}", sourcePath, targetDir, counts.entrySet().stream()
+                .map(entry -> entry.getValue() + " file(s) using " + entry.getKey())
+                .collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Stage a file using the first strategy that works. Strategies that fail are
+     * not tried again for the rest of the files as the reason, such as the source
+     * and target being on different file systems, will usually apply to all of
+     * them.
+     */
+    private void stageFile(Path source, Path target, List<StagingStrategy> strategies,
+            Map<StagingStrategy, Integer> counts) throws IOException {
+        Iterator<StagingStrategy> iterator = strategies.iterator();
+        while (iterator.hasNext()) {
+            StagingStrategy strategy = iterator.next();
+            if (!strategy.isApplicable(source)) {
+                continue;
+            }
+            try {
+                strategy.stage(source, target);
+            } catch (IOException ex) {
+                if (StagingStrategy.COPY == strategy) {
+                    throw ex;
+                }
+                LOGGER.debug("Not using {} to stage files from '{}' in '{}'.", strategy, source.getParent(),
+                        target.getParent(), ex);
+                iterator.remove();
+                continue;
+            }
+            if (!strategy.sharesSource()) {
+                changePermissions(target);
+            }
+            counts.merge(strategy, 1, Integer::sum);
+            return;
+        }
     }
 
 }
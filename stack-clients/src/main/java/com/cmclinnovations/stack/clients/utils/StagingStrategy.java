@@ -0,0 +1,129 @@
+package com.cmclinnovations.stack.clients.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+
+import com.cmclinnovations.stack.clients.core.StackClient;
+
+/**
+ * Ways of making a file available in a temporary directory, in the order that
+ * they are preferred.
+ *
+ * The strategies that share the source file, rather than creating a new one,
+ * leave its permissions unchanged so they are only used for files that can
+ * already be read by everyone. Files staged in this way must be replaced,
+ * rather than modified in place, as any changes would also be made to the
+ * source file.
+ */
+public enum StagingStrategy {
+
+    /**
+     * Link to the source file, only possible when the source file is in the
+     * scratch directory as that is mounted at the same path in all of the
+     * containers.
+     */
+    SYMLINK(true) {
+        @Override
+        boolean isApplicable(Path source) throws IOException {
+            return source.toRealPath().startsWith(Path.of(StackClient.getScratchDir()))
+                    && isReadableByAll(source);
+        }
+
+        @Override
+        void stage(Path source, Path target) throws IOException {
+            Files.createSymbolicLink(target, source.toRealPath());
+        }
+    },
+    /**
+     * Add another name for the source file, only possible when the source and
+     * target are on the same file system.
+     */
+    HARDLINK(true) {
+        @Override
+        boolean isApplicable(Path source) throws IOException {
+            return isReadableByAll(source);
+        }
+
+        @Override
+        void stage(Path source, Path target) throws IOException {
+            Files.createLink(target, source.toRealPath());
+        }
+    },
+    /**
+     * Create a copy-on-write clone of the source file, only possible when the
+     * source and target are on the same file system and it supports reflinks
+     * (e.g. Btrfs and XFS).
+     */
+    REFLINK(false) {
+        @Override
+        void stage(Path source, Path target) throws IOException {
+            // Java has no access to the FICLONE ioctl so use GNU cp
+            Process process = new ProcessBuilder("cp", "--reflink=always", "--",
+                    source.toRealPath().toString(), target.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (InputStream is = process.getInputStream()) {
+                is.transferTo(output);
+            }
+            try {
+                if (0 != process.waitFor()) {
+                    Files.deleteIfExists(target);
+                    throw new IOException("Failed to clone '" + source + "': "
+                            + output.toString(StandardCharsets.UTF_8).strip());
+                }
+            } catch (InterruptedException ex) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while cloning '" + source + "'.", ex);
+            }
+        }
+    },
+    /**
+     * Copy the contents of the source file, always possible.
+     */
+    COPY(false) {
+        @Override
+        void stage(Path source, Path target) throws IOException {
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    };
+
+    private final boolean sharesSource;
+
+    StagingStrategy(boolean sharesSource) {
+        this.sharesSource = sharesSource;
+    }
+
+    /**
+     * @return true if the staged file is the source file, so changing its
+     *         permissions or contents would change the source file
+     */
+    public boolean sharesSource() {
+        return sharesSource;
+    }
+
+    /**
+     * @return false if the strategy should not be used for the file, regardless
+     *         of where it is being staged
+     */
+    boolean isApplicable(Path source) throws IOException {
+        return true;
+    }
+
+    /**
+     * @throws IOException if the file could not be staged, in which case no file
+     *                     is left at the target path
+     */
+    abstract void stage(Path source, Path target) throws IOException;
+
+    private static boolean isReadableByAll(Path source) throws IOException {
+        return Files.getPosixFilePermissions(source).contains(PosixFilePermission.OTHERS_READ);
+    }
+}
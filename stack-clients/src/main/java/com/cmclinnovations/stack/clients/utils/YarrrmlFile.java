@@ -8,9 +8,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
@@ -21,6 +23,7 @@ public final class YarrrmlFile {
     private final Yaml yaml;
     private final Map<String, Object> sourcesTemplate;
 
+    private static final String PREFIXES_KEY = "prefixes";
     private static final String SOURCES_KEY = "sources";
     private static final String SOURCE_REF_KEY = "source-ref";
     private static final String MAPPING_KEY = "mappings";
@@ -81,6 +84,66 @@ public final class YarrrmlFile {
         return this.rules;
     }
 
+    /**
+     * Add the rules from another file so that they can be converted to RML in a
+     * single run. The source of each of the other file's mappings is renamed so
+     * that it doesn't clash with the sources already in this file.
+     * 
+     * @param other The rules to add.
+     * @return false, without changing either set of rules, if they can't be
+     *         combined because they contain mappings with the same name,
+     *         different definitions of the same prefix or other differing
+     *         top-level settings.
+     */
+    public boolean merge(YarrrmlFile other) {
+        AliasMap<Object> mappings = this
+                .castToAliasMap(this.rules.get(MAPPING_KEY, MAPPING_ALT_KEY, MAPPING_ALT_TWO_KEY));
+        AliasMap<Object> otherMappings = this
+                .castToAliasMap(other.rules.get(MAPPING_KEY, MAPPING_ALT_KEY, MAPPING_ALT_TWO_KEY));
+        if (!Collections.disjoint(mappings.keySet(), otherMappings.keySet())) {
+            return false;
+        }
+
+        AliasMap<Object> prefixes = this.rules.containsKey(PREFIXES_KEY)
+                ? this.castToAliasMap(this.rules.get(PREFIXES_KEY))
+                : new AliasMap<>();
+        if (other.rules.containsKey(PREFIXES_KEY)) {
+            AliasMap<Object> otherPrefixes = this.castToAliasMap(other.rules.get(PREFIXES_KEY));
+            for (Map.Entry<String, Object> prefix : otherPrefixes.entrySet()) {
+                if (prefixes.containsKey(prefix.getKey())
+                        && !Objects.equals(prefixes.get(prefix.getKey()), prefix.getValue())) {
+                    return false;
+                }
+            }
+            prefixes.putAll(otherPrefixes);
+        }
+
+        for (Map.Entry<String, Object> entry : other.rules.entrySet()) {
+            String key = entry.getKey();
+            if (!key.equals(PREFIXES_KEY) && !key.equals(SOURCES_KEY) && !key.equals(MAPPING_KEY)
+                    && this.rules.containsKey(key) && !Objects.equals(this.rules.get(key), entry.getValue())) {
+                return false;
+            }
+        }
+
+        AliasMap<Object> sources = this.castToAliasMap(this.rules.get(SOURCES_KEY));
+        String sourceName = SOURCE_REF_KEY + "-" + (sources.size() + 1);
+        sources.put(sourceName, this.castToAliasMap(other.rules.get(SOURCES_KEY)).get(SOURCE_REF_KEY));
+        otherMappings.forEach((name, mapping) -> {
+            AliasMap<Object> mappingValue = this.castToAliasMap(mapping);
+            mappingValue.put(SOURCES_KEY, sourceName);
+            mappings.put(name, mappingValue);
+        });
+
+        other.rules.forEach(this.rules::putIfAbsent);
+        if (!prefixes.isEmpty()) {
+            this.rules.put(PREFIXES_KEY, prefixes);
+        }
+        this.rules.put(SOURCES_KEY, sources);
+        this.rules.put(MAPPING_KEY, mappings, MAPPING_ALT_KEY, MAPPING_ALT_TWO_KEY);
+        return true;
+    }
+
     /**
      * Writes the file content into a byte array for further usage.
      */
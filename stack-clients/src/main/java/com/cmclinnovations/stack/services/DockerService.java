@@ -251,6 +251,8 @@ public class DockerService extends AbstractService
             pullImage(service);
 
             container = configureContainerWrapper(service);
+            // Drop anything cached while the new container was starting
+            DockerClient.invalidateContainerId(service.getContainerName());
         }
 
         final String containerId;
@@ -320,6 +322,8 @@ public class DockerService extends AbstractService
     }
 
     void removeService(String serviceName) {
+        DockerClient.invalidateContainerId(serviceName);
+
         Optional<Service> swarmService = getSwarmService(serviceName);
 
         if (swarmService.isPresent()) {
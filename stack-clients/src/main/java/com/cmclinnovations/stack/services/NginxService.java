@@ -79,21 +79,47 @@ public final class NginxService extends ContainerService implements ReverseProxy
     }
 
     public void addService(ContainerService service) {
+        addLocations(service, service.getName(), service.getEndpoints());
+    }
+
+    @Override
+    public void addServiceAlias(ContainerService service, String alias) {
+        Map<String, Connection> endpoints = new HashMap<>();
+        service.getEndpoints().forEach((endpointName, connection) -> endpoints.put(endpointName,
+                new Connection(connection.getUrl(), connection.getUri(),
+                        null == connection.getExternalPath() ? null
+                                : URI.create(connection.getExternalPath().toString()
+                                        .replace(service.getName(), alias)))));
+        addLocations(service, alias, endpoints);
+    }
+
+    @Override
+    public void removeServiceAlias(String alias) {
+        executeCommand("rm", "-f", NGINX_CONF_DIR + "locations/" + alias + ".conf",
+                NGINX_CONF_DIR + "upstreams/" + alias + ".conf");
+        executeCommand(CMD, "-s", "reload");
+    }
+
+    /**
+     * @param name used to name the config files and upstreams, the service's own
+     *             name unless it is being added under an alias
+     */
+    private void addLocations(ContainerService service, String name, Map<String, Connection> endpoints) {
 
         NgxConfig locationConfigOut = new NgxConfig();
 
         Map<String, String> upstreams = new HashMap<>();
 
         try {
-            for (Entry<String, Connection> endpoint : service.getEndpoints().entrySet()) {
-                addLocation(service, locationConfigOut, upstreams, endpoint);
+            for (Entry<String, Connection> endpoint : endpoints.entrySet()) {
+                addLocation(service, name, locationConfigOut, upstreams, endpoint);
             }
         } catch (ParseException | IOException ex) {
             throw new InvalidTemplateException(TEMPLATE_TYPE, LOCATIONS_CONF_TEMPLATE, ex);
         }
 
         if (!locationConfigOut.getEntries().isEmpty()) {
-            sender.addConfig(locationConfigOut, "locations/" + service.getName() + ".conf");
+            sender.addConfig(locationConfigOut, "locations/" + name + ".conf");
 
             if (!upstreams.isEmpty()) {
                 try {
@@ -101,7 +127,7 @@ public final class NginxService extends ContainerService implements ReverseProxy
                     for (Entry<String, String> upstream : upstreams.entrySet()) {
                         addUpstream(upstreamConfigOut, upstream);
                     }
-                    sender.addConfig(upstreamConfigOut, "upstreams/" + service.getName() + ".conf");
+                    sender.addConfig(upstreamConfigOut, "upstreams/" + name + ".conf");
 
                     sender.sendConfigs();
                 } catch (ParseException | IOException ex) {
@@ -129,15 +155,15 @@ public final class NginxService extends ContainerService implements ReverseProxy
         }
     }
 
-    private void addLocation(ContainerService service, NgxConfig locationConfigOut, Map<String, String> upstreams,
-            Entry<String, Connection> endpoint) throws ParseException, IOException {
+    private void addLocation(ContainerService service, String name, NgxConfig locationConfigOut,
+            Map<String, String> upstreams, Entry<String, Connection> endpoint) throws ParseException, IOException {
         Connection connection = endpoint.getValue();
         URI externalPath = connection.getExternalPath();
         if (null != externalPath) {
             try (InputStream inStream = new BufferedInputStream(
                     NginxService.class.getResourceAsStream(LOCATIONS_CONF_TEMPLATE))) {
                 String serviceName = service.getName();
-                String upstreamName = serviceName + "_" + endpoint.getKey();
+                String upstreamName = name + "_" + endpoint.getKey();
                 NginxConfigParser parser = new NginxConfigParser(inStream);
                 NgxConfig configTemplate = parser.parse();
                 configTemplate.getEntries();
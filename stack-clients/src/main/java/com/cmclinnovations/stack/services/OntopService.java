@@ -123,7 +123,7 @@ public final class OntopService extends ContainerService {
             if (!fileExists(fileName)) {
                 switch (key) {
                     case OntopClient.ONTOP_MAPPING_FILE:
-                        ontopClient.updateOBDA(null);
+                        ontopClient.updateOBDA(List.of());
                         break;
                     case OntopClient.ONTOP_SPARQL_RULES_FILE:
                         ontopClient.uploadRules(List.of());
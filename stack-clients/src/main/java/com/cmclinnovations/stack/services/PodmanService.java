@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.cmclinnovations.stack.clients.core.StackClient;
+import com.cmclinnovations.stack.clients.docker.DockerClient;
 import com.cmclinnovations.stack.clients.docker.PodmanClient;
 import com.cmclinnovations.stack.services.config.ServiceConfig;
 import com.github.dockerjava.api.model.Container;
@@ -176,6 +177,8 @@ public class PodmanService extends DockerService {
 
     @Override
     void removeService(String serviceName) {
+        DockerClient.invalidateContainerId(serviceName);
+
         Optional<ListPodsReport> pod = getPod(serviceName);
 
         if (pod.isPresent()) {
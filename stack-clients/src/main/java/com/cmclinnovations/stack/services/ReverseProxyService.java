@@ -3,4 +3,16 @@ package com.cmclinnovations.stack.services;
 public interface ReverseProxyService extends Service {
 
     public void addService(ContainerService service);
+
+    /**
+     * Route requests for another name to an existing service, i.e. the external
+     * paths of its endpoints with the service's name replaced by the alias.
+     */
+    public void addServiceAlias(ContainerService service, String alias);
+
+    /**
+     * Stop routing requests for an alias added by
+     * {@link #addServiceAlias(ContainerService, String)}.
+     */
+    public void removeServiceAlias(String alias);
 }
@@ -198,6 +198,26 @@ public final class ServiceManager {
         userServices.forEach(serviceName -> initialiseService(stackName, serviceName));
     }
 
+    /**
+     * Make an existing service reachable through the reverse proxy under another
+     * name as well, without starting another container. The service is
+     * initialised first if necessary.
+     */
+    public void addServiceAlias(String stackName, String serviceName, String alias) {
+        Service service = getOrInitialiseService(stackName, serviceName);
+        if (!(service instanceof ContainerService)) {
+            throw new IllegalArgumentException("Service '" + serviceName
+                    + "' does not run in a container so it can't be given an alias.");
+        }
+        ReverseProxyService reverseProxyService = getOrInitialiseService(stackName, NginxService.TYPE);
+        reverseProxyService.addServiceAlias((ContainerService) service, alias);
+    }
+
+    public void removeServiceAlias(String stackName, String alias) {
+        ReverseProxyService reverseProxyService = getOrInitialiseService(stackName, NginxService.TYPE);
+        reverseProxyService.removeServiceAlias(alias);
+    }
+
     public void removeService(String stackName, String serviceName) {
         DockerService dockerService = getOrInitialiseService(stackName, StackClient.getContainerEngineName());
         dockerService.removeService(serviceName);
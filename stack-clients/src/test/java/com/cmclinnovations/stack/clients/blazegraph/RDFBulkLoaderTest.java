@@ -0,0 +1,204 @@
+package com.cmclinnovations.stack.clients.blazegraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hc.core5.http.ContentType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RDFBulkLoaderTest {
+
+    private static final String PREFIX = "@prefix ex: <http://example.com/> .\n";
+
+    @TempDir
+    Path tempDir;
+
+    private final RDFBulkLoader loader = new RDFBulkLoader(null, 100, 1, 0);
+
+    private List<String> split(Path file) throws IOException {
+        List<String> parts = new ArrayList<>();
+        loader.split(file, part -> parts.add(Assertions.assertDoesNotThrow(() -> {
+            try (InputStream is = part.open()) {
+                return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        })));
+        return parts;
+    }
+
+    private static String nTriples(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("<http://example.com/s").append(i).append("> <http://example.com/p> \"").append(i)
+                    .append("\" .\n");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void testGetRDFExtension() {
+        Assertions.assertEquals("nt", RDFBulkLoader.getRDFExtension(Path.of("dir", "data.nt.gz")));
+        Assertions.assertEquals("ttl", RDFBulkLoader.getRDFExtension(Path.of("dir", "data.ttl")));
+    }
+
+    @Test
+    void testSmallFileIsNotSplit() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("small.nt"), nTriples(1));
+
+        Assertions.assertEquals(List.of(nTriples(1)), split(file));
+    }
+
+    @Test
+    void testNTriplesSplitAtLineBoundaries() throws IOException {
+        String content = nTriples(20);
+        Path file = Files.writeString(tempDir.resolve("large.nt"), content);
+
+        List<String> parts = split(file);
+
+        Assertions.assertTrue(parts.size() > 1);
+        Assertions.assertEquals(content, String.join("", parts));
+        parts.forEach(part -> Assertions.assertTrue(part.endsWith(" .\n")));
+    }
+
+    @Test
+    void testLinesLongerThanReadBuffer() throws IOException {
+        // Longer than the buffer used to read the file and with no final line terminator
+        String longLiteral = "x".repeat(100_000);
+        String content = nTriples(5) + "<http://example.com/s> <http://example.com/p> \"" + longLiteral + "\" .\n"
+                + nTriples(5) + "<http://example.com/s> <http://example.com/p> \"" + longLiteral + "\" .";
+        Path file = Files.writeString(tempDir.resolve("long.nt"), content);
+
+        List<String> parts = split(file);
+
+        Assertions.assertEquals(content, String.join("", parts));
+        parts.forEach(part -> Assertions.assertTrue(part.endsWith(" .\n") || part.endsWith(" .")));
+    }
+
+    @Test
+    void testGzippedFileIsDecompressed() throws IOException {
+        String content = nTriples(20);
+        Path file = tempDir.resolve("large.nt.gz");
+        try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(file))) {
+            for (int i = 0; i < 10; i++) {
+                // Make the compressed file larger than a chunk
+                os.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        Assertions.assertEquals(content.repeat(10), String.join("", split(file)));
+    }
+
+    @Test
+    void testTurtleChunksStartWithPrefixes() throws IOException {
+        String statements = nTriples(20).replace("<http://example.com/p>", "ex:p");
+        Path file = Files.writeString(tempDir.resolve("large.ttl"), PREFIX + statements);
+
+        List<String> parts = split(file);
+
+        Assertions.assertTrue(parts.size() > 1);
+        parts.forEach(part -> Assertions.assertTrue(part.startsWith(PREFIX)));
+        Assertions.assertEquals(PREFIX + statements, parts.stream()
+                .map(part -> part.equals(parts.get(0)) ? part : part.substring(PREFIX.length()))
+                .collect(Collectors.joining()));
+    }
+
+    @Test
+    void testTurtleLongLiteralIsNotSplit() throws IOException {
+        String literal = "ex:s ex:p \"\"\"first line .\n" + "second line .\n".repeat(20) + "\"\"\" .\n";
+        Path file = Files.writeString(tempDir.resolve("literal.ttl"), PREFIX + literal + literal);
+
+        List<String> parts = split(file);
+
+        Assertions.assertEquals(List.of(PREFIX + literal, PREFIX + literal), parts);
+    }
+
+    @Test
+    void testBlankNodesAreUploadedTogether() throws IOException {
+        String content = nTriples(10);
+        String blankNodes = "_:b0 <http://example.com/p> _:b1 .\n" + nTriples(10) + "_:b1 <http://example.com/p> \"x\" .\n";
+        Path file = Files.writeString(tempDir.resolve("blank.nt"), content + blankNodes);
+
+        List<String> parts = split(file);
+
+        Assertions.assertEquals(content + blankNodes, String.join("", parts));
+        Assertions.assertTrue(parts.get(parts.size() - 1).endsWith(blankNodes));
+    }
+
+    @Test
+    void testTurtleScannerIgnoresCommentsAndLiterals() {
+        RDFBulkLoader.TurtleScanner scanner = new RDFBulkLoader.TurtleScanner();
+
+        Assertions.assertFalse(scanner.scanLine("ex:s ex:p ex:o ; # note.\n"));
+        Assertions.assertFalse(scanner.scanLine("ex:s ex:p \"a.\" ;\n"));
+        Assertions.assertTrue(scanner.scanLine("ex:s ex:p \"# not a comment\" .\n"));
+        Assertions.assertTrue(scanner.scanLine("ex:s ex:p <http://example.com/#o> . # comment\n"));
+        Assertions.assertFalse(scanner.scanLine("ex:s ex:p '''starts .\n"));
+        Assertions.assertTrue(scanner.isInLongLiteral());
+        Assertions.assertTrue(scanner.scanLine("ends \"\"\" ''' .\n"));
+    }
+
+    @Test
+    void testTurtleBlankNodesAreNotRetried() throws IOException {
+        String statements = nTriples(10).replace("<http://example.com/p>", "ex:p");
+        String blankNode = "ex:s ex:p [ ex:p \"x\" ] .\n";
+        Path file = Files.writeString(tempDir.resolve("anonymous.ttl"), PREFIX + statements + blankNode);
+
+        List<RDFBulkLoader.Part> parts = new ArrayList<>();
+        loader.split(file, parts::add);
+
+        Assertions.assertTrue(parts.size() > 1);
+        Assertions.assertTrue(parts.get(0).isRetryable());
+        Assertions.assertFalse(parts.get(parts.size() - 1).isRetryable());
+    }
+
+    private List<String> stream(String content) throws IOException {
+        List<String> parts = new ArrayList<>();
+        RDFBulkLoader streamLoader = new RDFBulkLoader(null, 100, 1, 0) {
+            @Override
+            void upload(Part part, ContentType contentType) throws IOException {
+                try (InputStream is = part.open()) {
+                    parts.add(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        };
+        try (OutputStream os = streamLoader.openStream(ContentType.DEFAULT_TEXT, "test stream")) {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            // Write in pieces that don't line up with the statements
+            for (int start = 0; start < bytes.length; start += 7) {
+                os.write(bytes, start, Math.min(7, bytes.length - start));
+            }
+        }
+        return parts;
+    }
+
+    @Test
+    void testStreamUploadedInChunks() throws IOException {
+        String content = nTriples(20);
+
+        List<String> parts = stream(content);
+
+        Assertions.assertTrue(parts.size() > 1);
+        Assertions.assertEquals(content, String.join("", parts));
+        parts.forEach(part -> Assertions.assertTrue(part.endsWith(" .\n")));
+    }
+
+    @Test
+    void testStreamBlankNodesAreUploadedTogether() throws IOException {
+        String content = nTriples(10);
+        String blankNodes = "_:b0 <http://example.com/p> _:b1 .\n" + nTriples(10) + "_:b1 <http://example.com/p> \"x\" .";
+
+        List<String> parts = stream(content + blankNodes);
+
+        Assertions.assertEquals(content + blankNodes, String.join("", parts));
+        Assertions.assertTrue(parts.get(parts.size() - 1).endsWith(blankNodes));
+    }
+}
@@ -0,0 +1,102 @@
+package com.cmclinnovations.stack.clients.blazegraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import uk.ac.cam.cares.jps.base.query.RemoteStoreClient;
+
+class SparqlRuleEngineTest {
+
+    private static final String PREFIX = "PREFIX ex: <http://example.com/>\n";
+
+    private static final String PARENT_TO_ANCESTOR = PREFIX
+            + "INSERT { ?a ex:ancestor ?b } WHERE { ?a ex:parent ?b }";
+    private static final String ANCESTOR_TRANSITIVE = PREFIX
+            + "INSERT { ?a ex:ancestor ?c } WHERE { ?a ex:ancestor ?b . ?b ex:ancestor ?c }";
+    private static final String LABEL = PREFIX
+            + "INSERT { ?a ex:label ?name } WHERE { ?a ex:name ?name }";
+
+    private static final IRI ANCESTOR = SimpleValueFactory.getInstance().createIRI("http://example.com/ancestor");
+
+    private final List<String> requests = new ArrayList<>();
+
+    /**
+     * @param results the number of statements modified by each request, the last
+     *                value is repeated once the list runs out
+     */
+    private RemoteStoreClient mockStore(int... results) {
+        RemoteStoreClient storeClient = Mockito.mock(RemoteStoreClient.class);
+        Mockito.when(storeClient.executeUpdate(ArgumentMatchers.anyString())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return results[Math.min(requests.size(), results.length) - 1];
+        });
+        return storeClient;
+    }
+
+    @Test
+    void testParse() {
+        SparqlRuleEngine.Rule rule = SparqlRuleEngine.parse(1, ANCESTOR_TRANSITIVE);
+
+        Assertions.assertEquals(Set.of(ANCESTOR), rule.getReads());
+        Assertions.assertEquals(Set.of(ANCESTOR), rule.getWrites());
+        Assertions.assertFalse(rule.readsAny());
+        Assertions.assertFalse(rule.writesAny());
+    }
+
+    @Test
+    void testParseVariablePredicate() {
+        SparqlRuleEngine.Rule rule = SparqlRuleEngine.parse(1, "INSERT { ?s ?p ?o } WHERE { ?o ?p ?s }");
+
+        Assertions.assertTrue(rule.readsAny());
+        Assertions.assertTrue(rule.writesAny());
+    }
+
+    @Test
+    void testUnparsableRuleIsAlwaysAffected() {
+        SparqlRuleEngine.Rule rule = SparqlRuleEngine.parse(1, "not a SPARQL update");
+
+        Assertions.assertTrue(rule.readsAny());
+        Assertions.assertTrue(rule.isAffectedBy(Set.of(ANCESTOR), false));
+        Assertions.assertFalse(rule.isAffectedBy(Set.of(), false));
+    }
+
+    @Test
+    void testSingleIterationRunsEachRuleOnce() {
+        new SparqlRuleEngine(mockStore(1), 1, 1).run(List.of(PARENT_TO_ANCESTOR, ANCESTOR_TRANSITIVE, LABEL));
+
+        Assertions.assertEquals(List.of(PARENT_TO_ANCESTOR, ANCESTOR_TRANSITIVE, LABEL), requests);
+    }
+
+    @Test
+    void testRulesAreBatched() {
+        new SparqlRuleEngine(mockStore(0), 2, 1).run(List.of(PARENT_TO_ANCESTOR, ANCESTOR_TRANSITIVE, LABEL));
+
+        Assertions.assertEquals(List.of(PARENT_TO_ANCESTOR + ";\n" + ANCESTOR_TRANSITIVE, LABEL), requests);
+    }
+
+    @Test
+    void testOnlyAffectedRulesAreRepeated() {
+        // The first pass modifies the store, the transitive rule then adds more
+        // statements once before reaching a fixpoint
+        new SparqlRuleEngine(mockStore(3, 3, 3, 2, 0), 1, 10)
+                .run(List.of(PARENT_TO_ANCESTOR, ANCESTOR_TRANSITIVE, LABEL));
+
+        Assertions.assertEquals(List.of(PARENT_TO_ANCESTOR, ANCESTOR_TRANSITIVE, LABEL,
+                ANCESTOR_TRANSITIVE, ANCESTOR_TRANSITIVE), requests);
+    }
+
+    @Test
+    void testMaxIterations() {
+        new SparqlRuleEngine(mockStore(1), 1, 3).run(List.of(ANCESTOR_TRANSITIVE));
+
+        Assertions.assertEquals(3, requests.size());
+    }
+}
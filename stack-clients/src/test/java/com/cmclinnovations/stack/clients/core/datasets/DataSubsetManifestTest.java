@@ -0,0 +1,116 @@
+package com.cmclinnovations.stack.clients.core.datasets;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cmclinnovations.stack.clients.utils.JsonHelper;
+
+class DataSubsetManifestTest {
+
+    private static final String DATA_SUBSET_CONFIG = "{\"type\":\"Tabular\",\"name\":\"table\",\"subdirectory\":\"data\"}";
+
+    @TempDir
+    Path tempDir;
+
+    private Path manifestFile;
+    private Path dataFile;
+    private DataSubset dataSubset;
+    private Dataset dataset;
+
+    @BeforeEach
+    void setup() throws IOException {
+        manifestFile = tempDir.resolve("manifest").resolve("manifest.json");
+        Path datasetDirectory = tempDir.resolve("dataset");
+        dataFile = Files.createDirectories(datasetDirectory.resolve("data")).resolve("table.csv");
+        Files.writeString(dataFile, "a,b\n1,2\n");
+
+        dataSubset = JsonHelper.getMapper().readValue(DATA_SUBSET_CONFIG, DataSubset.class);
+        dataSubset.setConfig(DATA_SUBSET_CONFIG);
+        dataset = new DatasetBuilder("test").withDatasetDirectory(datasetDirectory.toString())
+                .withDataSubsets(List.of(dataSubset)).build();
+    }
+
+    private DataSubsetManifest load() {
+        return DataSubsetManifest.load(manifestFile, (loadedDataset, loadedDataSubset) -> true);
+    }
+
+    @Test
+    void testNewDataSubsetIsChanged() {
+        Assertions.assertFalse(load().isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testUnchangedAfterReload() {
+        load().update(dataset, dataSubset);
+
+        Assertions.assertTrue(Files.exists(manifestFile));
+        Assertions.assertTrue(load().isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testTouchedFileWithSameContentIsUnchanged() throws IOException {
+        DataSubsetManifest manifest = load();
+        manifest.update(dataset, dataSubset);
+
+        Files.setLastModifiedTime(dataFile, FileTime.from(Instant.now().plusSeconds(60)));
+
+        Assertions.assertTrue(manifest.isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testEditedFileIsChanged() throws IOException {
+        DataSubsetManifest manifest = load();
+        manifest.update(dataset, dataSubset);
+
+        Files.writeString(dataFile, "a,b\n1,3\n");
+        Files.setLastModifiedTime(dataFile, FileTime.from(Instant.now().plusSeconds(60)));
+
+        Assertions.assertFalse(manifest.isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testAddedFileIsChanged() throws IOException {
+        DataSubsetManifest manifest = load();
+        manifest.update(dataset, dataSubset);
+
+        Files.writeString(dataFile.resolveSibling("other.csv"), "a,b\n");
+
+        Assertions.assertFalse(manifest.isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testEditedConfigIsChanged() {
+        DataSubsetManifest manifest = load();
+        manifest.update(dataset, dataSubset);
+
+        dataSubset.setConfig(DATA_SUBSET_CONFIG.replace("}", ",\"schema\":\"other\"}"));
+
+        Assertions.assertFalse(manifest.isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testRemovedTargetIsChanged() {
+        load().update(dataset, dataSubset);
+
+        Assertions.assertFalse(DataSubsetManifest.load(manifestFile, (loadedDataset, loadedDataSubset) -> false)
+                .isUnchanged(dataset, dataSubset));
+    }
+
+    @Test
+    void testRemovedDatasetIsChanged() {
+        load().update(dataset, dataSubset);
+
+        load().remove(dataset);
+
+        Assertions.assertFalse(load().isUnchanged(dataset, dataSubset));
+    }
+}
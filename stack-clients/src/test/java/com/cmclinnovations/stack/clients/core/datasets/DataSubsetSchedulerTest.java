@@ -0,0 +1,111 @@
+package com.cmclinnovations.stack.clients.core.datasets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.cmclinnovations.stack.clients.core.datasets.DataSubsetScheduler.Backend;
+
+class DataSubsetSchedulerTest {
+
+    private static class TestDataSubset extends DataSubset {
+        private final String subsetName;
+        private final boolean postGIS;
+        private final AtomicInteger active;
+        private final AtomicInteger maxActive;
+        private final List<String> loaded;
+
+        TestDataSubset(String subsetName, boolean postGIS, AtomicInteger active, AtomicInteger maxActive,
+                List<String> loaded) {
+            this.subsetName = subsetName;
+            this.postGIS = postGIS;
+            this.active = active;
+            this.maxActive = maxActive;
+            this.loaded = loaded;
+        }
+
+        @Override
+        public String getName() {
+            return subsetName;
+        }
+
+        @Override
+        public boolean usesPostGIS() {
+            return postGIS;
+        }
+
+        @Override
+        public boolean usesBlazegraph() {
+            return !postGIS;
+        }
+
+        @Override
+        void loadInternal(Dataset dataset) {
+            if (subsetName.startsWith("fail")) {
+                throw new IllegalStateException("Test failure");
+            }
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Assertions.assertDoesNotThrow(() -> Thread.sleep(50));
+            active.decrementAndGet();
+            loaded.add(subsetName);
+        }
+    }
+
+    @Test
+    void testBackendLimitIsRespected() {
+        AtomicInteger activePostGIS = new AtomicInteger();
+        AtomicInteger maxActivePostGIS = new AtomicInteger();
+        AtomicInteger activeBlazegraph = new AtomicInteger();
+        AtomicInteger maxActiveBlazegraph = new AtomicInteger();
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        List<DataSubset> dataSubsets = new ArrayList<>();
+        IntStream.range(0, 4).forEach(i -> {
+            dataSubsets.add(new TestDataSubset("postgis" + i, true, activePostGIS, maxActivePostGIS, loaded));
+            dataSubsets.add(new TestDataSubset("blazegraph" + i, false, activeBlazegraph, maxActiveBlazegraph,
+                    loaded));
+        });
+        Dataset dataset = new DatasetBuilder("test").withDataSubsets(dataSubsets).build();
+
+        new DataSubsetScheduler(8, Map.of(Backend.POSTGIS, 1, Backend.BLAZEGRAPH, 3)).load(dataset,
+                subset -> subset.load(dataset));
+
+        Assertions.assertEquals(dataSubsets.size(), loaded.size());
+        Assertions.assertEquals(1, maxActivePostGIS.get());
+        Assertions.assertTrue(maxActiveBlazegraph.get() <= 3);
+    }
+
+    @Test
+    void testFailureDoesNotStopOtherSubsets() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        List<DataSubset> dataSubsets = List.of(
+                new TestDataSubset("fail", true, active, maxActive, loaded),
+                new TestDataSubset("first", true, active, maxActive, loaded),
+                new TestDataSubset("second", false, active, maxActive, loaded));
+        Dataset dataset = new DatasetBuilder("test").withDataSubsets(dataSubsets).build();
+
+        DataSubsetScheduler scheduler = new DataSubsetScheduler(2, Map.of());
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> scheduler.load(dataset, subset -> subset.load(dataset)));
+
+        Assertions.assertEquals(1, exception.getSuppressed().length);
+        Assertions.assertEquals(List.of("first", "second"),
+                loaded.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testInvalidBackendLimit() {
+        Map<Backend, Integer> limits = Map.of(Backend.GEOSERVER, 0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DataSubsetScheduler(2, limits));
+    }
+}
@@ -0,0 +1,62 @@
+package com.cmclinnovations.stack.clients.core.datasets;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DatasetSchedulerTest {
+    private static final Path configPath = Assertions
+            .assertDoesNotThrow(() -> Path.of(DatasetSchedulerTest.class.getResource("datasetReader").toURI()));
+
+    private static DirectedAcyclicGraph<Dataset, DefaultEdge> getGraph(String selectedDatasetName) {
+        return DatasetReader.getStackSpecificDatasetGraph(DatasetReader.getAllDatasets(configPath),
+                selectedDatasetName);
+    }
+
+    @Test
+    void testReferencedDatasetsLoadedFirst() {
+        DirectedAcyclicGraph<Dataset, DefaultEdge> graph = getGraph("nonTrivialWithOntology");
+        List<Dataset> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        new DatasetScheduler(4).run(graph, loaded::add);
+
+        Assertions.assertEquals(graph.vertexSet().size(), loaded.size());
+        loaded.forEach(dataset -> dataset.getReferencedDatasets().forEach(
+                referenced -> Assertions.assertTrue(loaded.indexOf(referenced) < loaded.indexOf(dataset),
+                        "Dataset '" + referenced.getName() + "' should be loaded before '" + dataset.getName()
+                                + "'.")));
+    }
+
+    @Test
+    void testFailureOnlyStopsDependentDatasets() {
+        DirectedAcyclicGraph<Dataset, DefaultEdge> graph = getGraph("nonTrivialWithOntology");
+        List<Dataset> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        DatasetScheduler scheduler = new DatasetScheduler(2);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> scheduler.run(graph, dataset -> {
+                    if ("ontology".equals(dataset.getName())) {
+                        throw new IllegalStateException("Test failure");
+                    }
+                    loaded.add(dataset);
+                }));
+
+        Assertions.assertEquals(1, exception.getSuppressed().length);
+        Assertions.assertTrue(CollectionUtils.isEqualCollection(
+                List.of("implicitlyNamed", "trivialExternal", "explicitlyNamed", "nonTrivialExternal"),
+                loaded.stream().map(Dataset::getName).collect(Collectors.toList())));
+    }
+
+    @Test
+    void testInvalidConcurrency() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DatasetScheduler(0));
+    }
+}
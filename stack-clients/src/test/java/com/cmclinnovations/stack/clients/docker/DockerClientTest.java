@@ -94,6 +94,26 @@ public class DockerClientTest {
         Assert.assertFalse(dockerAPI.directoryExists(containerId, remoteDir));
     }
 
+    @Test
+    public void testFileSystemBatch() {
+        String remoteDir = "/" + testName.getMethodName() + "/dir with 'quotes'";
+
+        FileSystemBatch batch = dockerAPI.createFileSystemBatch(containerId);
+        FileSystemBatch.Operation missing = batch.directoryExists(remoteDir);
+        FileSystemBatch.Operation makeDir = batch.makeDir(remoteDir);
+        FileSystemBatch.Operation chmod = batch.changePermissions("777", remoteDir, true);
+        FileSystemBatch.Operation exists = batch.directoryExists(remoteDir);
+        batch.execute();
+
+        Assert.assertFalse(missing.isSuccessful());
+        Assert.assertTrue(makeDir.isSuccessful());
+        Assert.assertTrue(chmod.isSuccessful());
+        Assert.assertTrue(exists.isSuccessful());
+
+        dockerAPI.deleteDirectory(containerId, remoteDir);
+        Assert.assertFalse(dockerAPI.directoryExists(containerId, remoteDir));
+    }
+
     @Test
     public void testSendFilesContent() {
         String remoteBaseDir = "/" + testName.getMethodName() + "/";
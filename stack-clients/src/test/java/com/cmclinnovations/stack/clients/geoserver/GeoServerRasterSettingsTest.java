@@ -0,0 +1,28 @@
+package com.cmclinnovations.stack.clients.geoserver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class GeoServerRasterSettingsTest {
+
+    @Test
+    void testDefaultSuggestedTileSizeIsSet() {
+        GeoServerRasterSettings settings = new GeoServerRasterSettings();
+
+        settings.setDefaultSuggestedTileSize("256,256");
+
+        Assertions.assertTrue(settings.getDataStoreSettings().toString().contains("256,256"));
+    }
+
+    @Test
+    void testUserSuggestedTileSizeIsKept() {
+        GeoServerRasterSettings settings = new GeoServerRasterSettings();
+        settings.getDataStoreSettings().setSUGGESTED_TILE_SIZE("512,512");
+
+        settings.setDefaultSuggestedTileSize("256,256");
+
+        String xml = settings.getDataStoreSettings().toString();
+        Assertions.assertTrue(xml.contains("512,512"));
+        Assertions.assertFalse(xml.contains("256,256"));
+    }
+}
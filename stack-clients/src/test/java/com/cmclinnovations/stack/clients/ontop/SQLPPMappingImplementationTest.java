@@ -0,0 +1,34 @@
+package com.cmclinnovations.stack.clients.ontop;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SQLPPMappingImplementationTest {
+
+    private static final String MAPPINGS = "[MappingDeclaration] @collection [[\n"
+            + "mappingId\tbuilding\n"
+            + "target\t:building/{id} a :Building .\n"
+            + "source\tSELECT id FROM buildings\n"
+            + "\n"
+            + "mappingId  building-height\n"
+            + "target\t:building/{id} :height {height} .\n"
+            + "source\tSELECT id, height FROM buildings\n"
+            + "]]\n";
+
+    @Test
+    void testPrefixMappingIds() {
+        String prefixed = SQLPPMappingImplementation.prefixMappingIds(MAPPINGS, "ontop-dataset");
+
+        Assertions.assertEquals(MAPPINGS
+                .replace("mappingId\tbuilding\n", "mappingId\tontop-dataset/building\n")
+                .replace("mappingId  building-height\n", "mappingId  ontop-dataset/building-height\n"),
+                prefixed);
+    }
+
+    @Test
+    void testPrefixWithReplacementCharacters() {
+        String prefixed = SQLPPMappingImplementation.prefixMappingIds("mappingId\tbuilding\n", "$1\\");
+
+        Assertions.assertEquals("mappingId\t$1\\/building\n", prefixed);
+    }
+}
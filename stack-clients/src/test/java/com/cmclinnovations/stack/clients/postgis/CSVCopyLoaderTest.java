@@ -0,0 +1,135 @@
+package com.cmclinnovations.stack.clients.postgis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cmclinnovations.stack.clients.postgis.CSVCopyLoader.ColumnType;
+
+class CSVCopyLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final CSVCopyLoader loader = new CSVCopyLoader(null, "test", new CSVCopyOptions(), 1);
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CSVCopyLoader.CSVReader reader = new CSVCopyLoader.CSVReader(new StringReader(csv), ',', "")) {
+            List<String> record;
+            while (null != (record = reader.readRecord())) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void testReadQuotedValues() throws IOException {
+        Assertions.assertEquals(List.of(List.of("a", "b,c", "d\"e"), List.of("1", "two\r\nlines", "")),
+                readAll("a,\"b,c\",\"d\"\"e\"\r\n1,\"two\r\nlines\",\"\"\r\n"));
+    }
+
+    @Test
+    void testUnquotedEmptyValueIsNull() throws IOException {
+        Assertions.assertEquals(List.of(Arrays.asList("x", null, "")), readAll("x,,\"\""));
+    }
+
+    @Test
+    void testTypeOfValue() {
+        Assertions.assertEquals(ColumnType.BOOLEAN, ColumnType.of("TRUE"));
+        Assertions.assertEquals(ColumnType.BIGINT, ColumnType.of("-42"));
+        Assertions.assertEquals(ColumnType.DOUBLE, ColumnType.of("4.2e1"));
+        Assertions.assertEquals(ColumnType.DATE, ColumnType.of("2024-02-29"));
+        Assertions.assertEquals(ColumnType.TIMESTAMP, ColumnType.of("2024-02-29 12:30:00.5"));
+        Assertions.assertEquals(ColumnType.TEXT, ColumnType.of("007"));
+        Assertions.assertEquals(ColumnType.TEXT, ColumnType.of("hello"));
+    }
+
+    @Test
+    void testWiden() {
+        Assertions.assertEquals(ColumnType.DOUBLE, ColumnType.BIGINT.widen("1.5"));
+        Assertions.assertEquals(ColumnType.TIMESTAMP, ColumnType.DATE.widen("2024-01-01T00:00"));
+        Assertions.assertEquals(ColumnType.TEXT, ColumnType.BOOLEAN.widen("1"));
+        Assertions.assertEquals(ColumnType.TEXT, ColumnType.DOUBLE.widen("n/a"));
+    }
+
+    @Test
+    void testInferLayout() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("data.csv"),
+                "id,value,,time,flag\n1,2,,2024-01-01,true\n2,2.5,,2024-01-01 10:00,false\n");
+
+        CSVCopyLoader.TableLayout layout = loader.inferLayout(file);
+
+        Assertions.assertEquals(List.of("id", "value", "field_3", "time", "flag"), layout.getColumns());
+        Assertions.assertEquals(List.of(ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.TEXT, ColumnType.TIMESTAMP,
+                ColumnType.BOOLEAN), layout.getTypes());
+    }
+
+    @Test
+    void testBinaryValues() throws IOException {
+        Assertions.assertEquals(1L, ByteBuffer.wrap(encode(ColumnType.BIGINT, "+1")).getLong());
+        Assertions.assertEquals(0.5, ByteBuffer.wrap(encode(ColumnType.DOUBLE, "0.5")).getDouble());
+        // Dates and timestamps are relative to 2000-01-01
+        Assertions.assertEquals(1, ByteBuffer.wrap(encode(ColumnType.DATE, "2000-01-02")).getInt());
+        Assertions.assertEquals(1_500_000L,
+                ByteBuffer.wrap(encode(ColumnType.TIMESTAMP, "2000-01-01 00:00:01.5")).getLong());
+        Assertions.assertArrayEquals(new byte[] { 1 }, encode(ColumnType.BOOLEAN, "True"));
+    }
+
+    @Test
+    void testBinaryFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("data.csv"), "id,name\n1,\n");
+        CSVCopyLoader.TableLayout layout = loader.inferLayout(file);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        loader.writeBinary(file, layout, outputStream);
+
+        ByteBuffer buffer = ByteBuffer.wrap(outputStream.toByteArray());
+        buffer.position(19);
+        Assertions.assertEquals(2, buffer.getShort());
+        Assertions.assertEquals(8, buffer.getInt());
+        Assertions.assertEquals(1L, buffer.getLong());
+        Assertions.assertEquals(-1, buffer.getInt());
+        Assertions.assertEquals(-1, buffer.getShort());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testBinaryValueOutsideSampleIsTypeError() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("data.csv"), "flag\ntrue\nyes\n");
+        CSVCopyLoader.TableLayout layout = new CSVCopyLoader.TableLayout(List.of("flag"),
+                List.of(ColumnType.BOOLEAN));
+
+        IOException ex = Assertions.assertThrows(IOException.class,
+                () -> loader.writeBinary(file, layout, new ByteArrayOutputStream()));
+
+        Assertions.assertTrue(CSVCopyLoader.isTypeError(new RuntimeException(ex)));
+        Assertions.assertTrue(layout.asText().isAllText());
+    }
+
+    @Test
+    void testIsTypeError() {
+        Assertions.assertTrue(CSVCopyLoader.isTypeError(new SQLException("invalid input syntax", "22P02")));
+        Assertions.assertFalse(CSVCopyLoader.isTypeError(new SQLException("connection failure", "08006")));
+        Assertions.assertFalse(CSVCopyLoader.isTypeError(new IOException("header mismatch")));
+    }
+
+    private static byte[] encode(ColumnType type, String value) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CSVCopyLoader.writeBinaryValue(type, value, new DataOutputStream(outputStream));
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,69 @@
+package com.cmclinnovations.stack.clients.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StagingStrategyTest {
+
+    @org.junit.jupiter.api.io.TempDir
+    Path tempDir;
+
+    private Path createSource(String permissions) throws IOException {
+        Path source = Files.writeString(tempDir.resolve("source.txt"), "contents");
+        Files.setPosixFilePermissions(source, PosixFilePermissions.fromString(permissions));
+        return source;
+    }
+
+    @Test
+    void testHardLinkSharesSource() throws IOException {
+        Path source = createSource("rw-r--r--");
+        Path target = tempDir.resolve("target.txt");
+
+        Assertions.assertTrue(StagingStrategy.HARDLINK.isApplicable(source));
+        StagingStrategy.HARDLINK.stage(source, target);
+
+        Assertions.assertTrue(Files.isSameFile(source, target));
+        Assertions.assertTrue(StagingStrategy.HARDLINK.sharesSource());
+    }
+
+    @Test
+    void testHardLinkNeedsSourceReadableByAll() throws IOException {
+        Path source = createSource("rw-------");
+
+        Assertions.assertFalse(StagingStrategy.HARDLINK.isApplicable(source));
+    }
+
+    @Test
+    void testSymlinkOnlyWithinScratchDir() throws IOException {
+        Path source = createSource("rw-r--r--");
+
+        Assertions.assertFalse(StagingStrategy.SYMLINK.isApplicable(source));
+    }
+
+    @Test
+    void testCopyIsIndependentOfSource() throws IOException {
+        Path source = createSource("rw-------");
+        Path target = tempDir.resolve("target.txt");
+
+        Assertions.assertTrue(StagingStrategy.COPY.isApplicable(source));
+        StagingStrategy.COPY.stage(source, target);
+
+        Assertions.assertFalse(Files.isSameFile(source, target));
+        Assertions.assertEquals("contents", Files.readString(target));
+        Assertions.assertFalse(StagingStrategy.COPY.sharesSource());
+    }
+
+    @Test
+    void testFailedCloneLeavesNoTarget() throws IOException {
+        Path target = tempDir.resolve("target.txt");
+
+        Assertions.assertThrows(IOException.class,
+                () -> StagingStrategy.REFLINK.stage(tempDir.resolve("missing.txt"), target));
+        Assertions.assertFalse(Files.exists(target));
+    }
+}
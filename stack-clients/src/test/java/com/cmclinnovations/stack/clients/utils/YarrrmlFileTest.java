@@ -8,6 +8,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,7 @@ class YarrrmlFileTest {
         private static final String EXPECTED_FOUR_FILE_NAME = "yml/expected/rules2_functions.yml";
         private static final String TEST_FIVE_FILE_NAME = "yml/test/rules_condition.yml";
         private static final String EXPECTED_FIVE_FILE_NAME = "yml/expected/rules_condition.yml";
+        private static final String TEST_SIX_FILE_NAME = "yml/test/rules_organisation.yml";
 
         @Test
         void testDefaultConstructor() {
@@ -97,6 +99,45 @@ class YarrrmlFileTest {
                                 yarrrmlFile.getRules());
         }
 
+        @Test
+        void testMerge_Success() throws IOException, URISyntaxException {
+                Path rulesFilePath = Paths.get(YarrrmlFileTest.class.getResource(TEST_ONE_FILE_NAME).toURI());
+                Path otherRulesFilePath = Paths.get(YarrrmlFileTest.class.getResource(TEST_SIX_FILE_NAME).toURI());
+                YarrrmlFile yarrrmlFile = new YarrrmlFile(rulesFilePath);
+
+                Assertions.assertTrue(yarrrmlFile.merge(new YarrrmlFile(otherRulesFilePath)));
+
+                AliasMap<Object> mappings = castToAliasMap(yarrrmlFile.getRules().get("mappings"));
+                Assertions.assertEquals(Set.of("person", "person-name", "organisation"), mappings.keySet());
+                Assertions.assertEquals("source-ref", castToAliasMap(mappings.get("person")).get("sources"));
+                Assertions.assertEquals("source-ref-2", castToAliasMap(mappings.get("organisation")).get("sources"));
+
+                AliasMap<Object> sources = castToAliasMap(yarrrmlFile.getRules().get("sources"));
+                Assertions.assertEquals(Set.of("source-ref", "source-ref-2"), sources.keySet());
+                Assertions.assertEquals(FileUtils.replaceExtension(otherRulesFilePath.toString(), "csv"),
+                                castToAliasMap(sources.get("source-ref-2")).get("access"));
+        }
+
+        @Test
+        void testMerge_ClashingMappingNames() throws IOException, URISyntaxException {
+                Path rulesFilePath = Paths.get(YarrrmlFileTest.class.getResource(TEST_ONE_FILE_NAME).toURI());
+                Path otherRulesFilePath = Paths.get(YarrrmlFileTest.class.getResource(TEST_TWO_FILE_NAME).toURI());
+                YarrrmlFile yarrrmlFile = new YarrrmlFile(rulesFilePath);
+
+                Assertions.assertFalse(yarrrmlFile.merge(new YarrrmlFile(otherRulesFilePath)));
+                Assertions.assertEquals(this.genExpectedYarrrmlContents(
+                                YarrrmlFileTest.class.getResource(EXPECTED_ONE_FILE_NAME),
+                                rulesFilePath),
+                                yarrrmlFile.getRules());
+        }
+
+        @SuppressWarnings("unchecked")
+        private static AliasMap<Object> castToAliasMap(Object value) {
+                AliasMap<Object> map = new AliasMap<>();
+                map.putAll((Map<String, Object>) value);
+                return map;
+        }
+
         private AliasMap<Object> genExpectedYarrrmlContents(URL expectedFilePath, Path expectedSourceLocation)
                         throws IOException, URISyntaxException {
                 Yaml yaml = new Yaml();